@@ -0,0 +1,72 @@
+package net.parksy.foldercompare.bench;
+
+import net.parksy.foldercompare.fs.CompareUtil;
+import net.parksy.foldercompare.fs.FileOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content comparison of two identical generated trees, which is the worst case: every byte is read.
+ * {@code filesEqual} compares the first pair of huge files, {@code directoriesEqual} one folder of
+ * small files and {@code treesEqual} the whole tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CompareBenchmark {
+
+    @Param({"SMALL_FILES", "HUGE_FILES"})
+    public SyntheticTree.Shape shape;
+
+    private Path root;
+    private Path left;
+    private Path right;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = SyntheticTree.createTempRoot("compare-bench-");
+        left = root.resolve("left");
+        right = root.resolve("right");
+        SyntheticTree.create(left, shape, 1);
+        SyntheticTree.create(right, shape, 1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileOperations.deleteRecursive(root);
+    }
+
+    @Benchmark
+    public boolean filesEqual() {
+        String name = shape == SyntheticTree.Shape.HUGE_FILES ? "huge0.bin" : "dir0/file0.txt";
+        return CompareUtil.filesEqual(left.resolve(name), right.resolve(name));
+    }
+
+    @Benchmark
+    public boolean directoriesEqual() {
+        Path dir = shape == SyntheticTree.Shape.HUGE_FILES ? Path.of("") : Path.of("dir0");
+        return CompareUtil.directoriesEqual(left.resolve(dir), right.resolve(dir));
+    }
+
+    @Benchmark
+    public boolean treesEqual() {
+        return CompareUtil.treesEqual(left, right);
+    }
+}
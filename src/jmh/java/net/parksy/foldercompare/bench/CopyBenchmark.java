@@ -0,0 +1,64 @@
+package net.parksy.foldercompare.bench;
+
+import net.parksy.foldercompare.fs.FileOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full {@code copyRecursive} of a generated tree into an empty target per invocation.
+ * The target is deleted outside the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class CopyBenchmark {
+
+    @Param({"SMALL_FILES", "HUGE_FILES", "DEEP"})
+    public SyntheticTree.Shape shape;
+
+    private Path root;
+    private Path source;
+    private Path target;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = SyntheticTree.createTempRoot("copy-bench-");
+        source = root.resolve("source");
+        target = root.resolve("target");
+        SyntheticTree.create(source, shape, 1);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTarget() throws IOException {
+        FileOperations.deleteRecursive(target);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileOperations.deleteRecursive(root);
+    }
+
+    @Benchmark
+    public Path copyRecursive() throws IOException {
+        FileOperations.copyRecursive(source, target);
+        return target;
+    }
+}
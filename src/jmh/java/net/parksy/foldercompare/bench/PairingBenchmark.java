@@ -0,0 +1,85 @@
+package net.parksy.foldercompare.bench;
+
+import net.parksy.foldercompare.fs.EntryPairer;
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairing two sorted single-level scans: the former TreeSet union with two map lookups per name
+ * against the linear {@link EntryPairer} merge. Both sides share about two thirds of their names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PairingBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int entries;
+
+    private Map<String, FileInfo> left;
+    private Map<String, FileInfo> right;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(1);
+        TreeSet<String> l = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        TreeSet<String> r = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < entries; i++) {
+            String name = (rnd.nextBoolean() ? "File-" : "file-") + Integer.toHexString(rnd.nextInt()) + ".dat";
+            switch (i % 3) {
+                case 0 -> l.add(name);
+                case 1 -> r.add(name);
+                default -> { l.add(name); r.add(name); }
+            }
+        }
+        left = toScan(l);
+        right = toScan(r);
+    }
+
+    private static Map<String, FileInfo> toScan(TreeSet<String> names) {
+        Map<String, FileInfo> map = new LinkedHashMap<>();
+        Instant now = Instant.now();
+        for (String n : names) map.put(n, new FileInfo(n, false, n.length(), now));
+        return map;
+    }
+
+    @Benchmark
+    public List<PairedEntry> treeSetUnion() {
+        TreeSet<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        names.addAll(left.keySet());
+        names.addAll(right.keySet());
+        List<PairedEntry> rows = new ArrayList<>();
+        for (String n : names) {
+            rows.add(new PairedEntry(left.get(n), right.get(n)));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public List<PairedEntry> sortedMerge() {
+        return EntryPairer.pair(left, right);
+    }
+}
@@ -0,0 +1,80 @@
+package net.parksy.foldercompare.bench;
+
+import net.parksy.foldercompare.fs.DirectoryScanner;
+import net.parksy.foldercompare.fs.FileOperations;
+import net.parksy.foldercompare.fs.StreamingScanner;
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.ScanSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing and pairing over generated trees: the single-level scan, the recursive snapshot scan and the
+ * whole streaming scan + pairing that refresh() runs (without the table).
+ * File system caches are warm after the first iteration, so these measure CPU and syscall cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScanBenchmark {
+
+    @Param({"SMALL_FILES", "DEEP", "MIXED_CASE"})
+    public SyntheticTree.Shape shape;
+
+    private Path root;
+    private Path left;
+    private Path right;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = SyntheticTree.createTempRoot("scan-bench-");
+        left = root.resolve("left");
+        right = root.resolve("right");
+        SyntheticTree.create(left, shape, 1);
+        SyntheticTree.createModifiedCopy(left, right, 10, 2);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileOperations.deleteRecursive(root);
+    }
+
+    @Benchmark
+    public Map<String, FileInfo> scanDir() {
+        return DirectoryScanner.scanDir(left.toString());
+    }
+
+    @Benchmark
+    public ScanSnapshot snapshotTree() {
+        return DirectoryScanner.snapshotTree(left.toString());
+    }
+
+    @Benchmark
+    public void refreshPairing(Blackhole bh) {
+        StreamingScanner.scan(left.toString(), right.toString(), false, 256, bh::consume, () -> false);
+    }
+
+    @Benchmark
+    public void refreshPairingRecursive(Blackhole bh) {
+        StreamingScanner.scan(left.toString(), right.toString(), true, 256, bh::consume, () -> false);
+    }
+}
@@ -0,0 +1,106 @@
+package net.parksy.foldercompare.bench;
+
+import net.parksy.foldercompare.fs.FileOperations;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates reproducible folder trees for the benchmarks. Each tree is written once per trial under
+ * {@code -Dbench.dir} (default: the system temp directory) and removed again in the tear-down.
+ */
+public final class SyntheticTree {
+    private SyntheticTree() {}
+
+    /** Size of each file in the {@link Shape#HUGE_FILES} shape, in MiB ({@code -Dbench.hugeFileMiB}). */
+    static final int HUGE_FILE_MIB = Integer.getInteger("bench.hugeFileMiB", 256);
+
+    public enum Shape {
+        /** 20 000 files of 0..4 KiB spread over 20 folders. */
+        SMALL_FILES,
+        /** 4 files of {@link #HUGE_FILE_MIB} MiB. */
+        HUGE_FILES,
+        /** A chain 40 folders deep with 25 small files per level. */
+        DEEP,
+        /** 5 000 files whose names differ in case and sort interleaved. */
+        MIXED_CASE
+    }
+
+    public static Path createTempRoot(String prefix) throws IOException {
+        String dir = System.getProperty("bench.dir");
+        return dir == null ? Files.createTempDirectory(prefix) : Files.createTempDirectory(Path.of(dir), prefix);
+    }
+
+    /**
+     * Writes a tree of the given shape under {@code root}. The same seed gives the same names and contents.
+     */
+    public static void create(Path root, Shape shape, long seed) throws IOException {
+        Random rnd = new Random(seed);
+        Files.createDirectories(root);
+        switch (shape) {
+            case SMALL_FILES -> {
+                for (int d = 0; d < 20; d++) {
+                    Path dir = Files.createDirectories(root.resolve("dir" + d));
+                    for (int f = 0; f < 1000; f++) {
+                        write(dir.resolve("file" + f + ".txt"), rnd.nextInt(4096), rnd);
+                    }
+                }
+            }
+            case HUGE_FILES -> {
+                for (int f = 0; f < 4; f++) {
+                    write(root.resolve("huge" + f + ".bin"), (long) HUGE_FILE_MIB * 1024 * 1024, rnd);
+                }
+            }
+            case DEEP -> {
+                Path dir = root;
+                for (int level = 0; level < 40; level++) {
+                    dir = Files.createDirectories(dir.resolve("level" + level));
+                    for (int f = 0; f < 25; f++) {
+                        write(dir.resolve("f" + f), rnd.nextInt(1024), rnd);
+                    }
+                }
+            }
+            case MIXED_CASE -> {
+                for (int f = 0; f < 5000; f++) {
+                    String base = Long.toString(rnd.nextLong() & Long.MAX_VALUE, 36);
+                    StringBuilder name = new StringBuilder(base.length());
+                    for (char c : base.toCharArray()) {
+                        name.append(rnd.nextBoolean() ? Character.toUpperCase(c) : c);
+                    }
+                    write(root.resolve(name + ".dat"), rnd.nextInt(512), rnd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies {@code source} to {@code target} and then rewrites every {@code nth} regular file with new
+     * content of the same size, so the two trees pair fully but differ in content.
+     */
+    public static void createModifiedCopy(Path source, Path target, int nth, long seed) throws IOException {
+        FileOperations.copyRecursive(source, target);
+        Random rnd = new Random(seed);
+        try (var files = Files.walk(target)) {
+            int[] i = {0};
+            for (Path p : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (i[0]++ % nth == 0) write(p, Files.size(p), rnd);
+            }
+        }
+    }
+
+    private static void write(Path file, long size, Random rnd) throws IOException {
+        byte[] buf = new byte[(int) Math.min(size, 1 << 20)];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            long left = size;
+            while (left > 0) {
+                rnd.nextBytes(buf);
+                int n = (int) Math.min(left, buf.length);
+                out.write(buf, 0, n);
+                left -= n;
+            }
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package net.parksy.foldercompare;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.DragEvent;
 import javafx.scene.input.Dragboard;
 import javafx.scene.input.TransferMode;
@@ -16,24 +19,46 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.image.Image;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Callback;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import net.parksy.foldercompare.model.CompareStatus;
 import net.parksy.foldercompare.model.FileInfo;
 import net.parksy.foldercompare.model.PairedEntry;
-import net.parksy.foldercompare.fs.DirectoryScanner;
-import net.parksy.foldercompare.fs.FileOperations;
-import net.parksy.foldercompare.fs.CompareUtil;
+import net.parksy.foldercompare.fs.StreamingScanner;
+import net.parksy.foldercompare.fs.BatchCoalescer;
+import net.parksy.foldercompare.fs.ComparisonEngine;
+import net.parksy.foldercompare.fs.ComparisonSnapshot;
+import net.parksy.foldercompare.fs.ComparisonTier;
+import net.parksy.foldercompare.fs.EntryFilter;
+import net.parksy.foldercompare.fs.FolderWatcher;
+import net.parksy.foldercompare.fs.RenameDetector;
+import net.parksy.foldercompare.fs.RowPatcher;
+import net.parksy.foldercompare.fs.SyncPlanner;
+import net.parksy.foldercompare.fs.TransferResult;
+import net.parksy.foldercompare.prefs.ContentHashCache;
 import net.parksy.foldercompare.prefs.HistoryService;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 public class App extends Application {
 
@@ -86,6 +111,34 @@ public class App extends Application {
     private final TextField rightPathField = new TextField();
 
     private HistoryService historyService;
+    private ComparisonEngine comparisonEngine;
+    private ContentHashCache hashCache;
+
+    /** Batch of scanned rows tagged with the refresh that produced it; the last batch of a scan is marked. */
+    private record RowBatch(long generation, List<PairedEntry> rows, boolean last) {}
+
+    private final ExecutorService scanExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "folder-scan");
+        t.setDaemon(true);
+        return t;
+    });
+    // Rename detection can hash gigabytes; on its own thread it never holds up scans and row patches
+    private final ExecutorService renameExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "rename-detect");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong scanGeneration = new AtomicLong();
+    private final BatchCoalescer<RowBatch> rowPublisher = new BatchCoalescer<>(Platform::runLater, this::appendRows);
+    private Path scanLeftRoot = Path.of("");
+    private Path scanRightRoot = Path.of("");
+    private boolean scanRecursive;
+    private EntryFilter scanFilter = EntryFilter.NONE;
+
+    // Live mode: watched changes are patched into the rows once the scan has delivered all of them
+    private FolderWatcher folderWatcher;
+    private boolean scanComplete;
+    private final Set<String> pendingChanges = new HashSet<>();
 
     private final TableView<PairedEntry> leftTable = new TableView<>();
     private final TableView<PairedEntry> rightTable = new TableView<>();
@@ -95,10 +148,16 @@ public class App extends Application {
     private Button copyBtn;
     private Button moveBtn;
 
+    private final CheckBox recursiveCheck = new CheckBox("Recursive");
+    private final CheckBox liveCheck = new CheckBox("Live");
+    private final ComboBox<ComparisonTier> tierCombo = new ComboBox<>(FXCollections.observableArrayList(ComparisonTier.values()));
+
+    private final TextField filterField = new TextField();
     private final ComboBox<String> historyCombo = new ComboBox<>();
     private final ObservableList<String> historyItems = FXCollections.observableArrayList();
 
     private static final DateTimeFormatter DT_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter SNAPSHOT_FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
 
     @Override
     public void start(Stage stage) {
@@ -106,6 +165,12 @@ public class App extends Application {
 
         // Initialize services
         historyService = new HistoryService();
+        hashCache = ContentHashCache.load(ContentHashCache.defaultLocation(), Constants.HASH_CACHE_MAX_ENTRIES);
+        comparisonEngine = new ComparisonEngine(Platform::runLater, hashCache);
+        // In recursive mode folders take their status from the rows below them once those are decided
+        comparisonEngine.setOnIdle(() -> {
+            if (scanRecursive && scanComplete) ComparisonEngine.resolveFolders(items);
+        });
 
         // Toolbar at top
         copyBtn = new Button("Copy", new Label(Constants.ICON_COPY_NEUTRAL));
@@ -114,6 +179,16 @@ public class App extends Application {
         moveBtn.setContentDisplay(ContentDisplay.LEFT);
         Button deleteBtn = new Button("Delete", new Label(Constants.ICON_TRASH));
         deleteBtn.setContentDisplay(ContentDisplay.LEFT);
+        Button syncBtn = new Button("Sync…", new Label(Constants.ICON_SYNC));
+        syncBtn.setContentDisplay(ContentDisplay.LEFT);
+        syncBtn.setTooltip(new Tooltip("Make one folder match the other, after a preview"));
+        MenuItem saveSnapshot = new MenuItem("Save snapshot");
+        MenuItem diffLastSnapshot = new MenuItem("Changes since last snapshot");
+        MenuItem diffSnapshotFile = new MenuItem("Changes since snapshot file…");
+        MenuItem diffSnapshotFiles = new MenuItem("Compare two snapshot files…");
+        MenuButton snapshotBtn = new MenuButton("Snapshots", new Label(Constants.ICON_SNAPSHOT),
+                saveSnapshot, diffLastSnapshot, diffSnapshotFile, diffSnapshotFiles);
+        snapshotBtn.setTooltip(new Tooltip("Keep the finished comparison, or see what changed since one was kept"));
         Button refreshBtn = new Button("Refresh", new Label(Constants.ICON_REFRESH));
         refreshBtn.setContentDisplay(ContentDisplay.LEFT);
         Button swapBtn = new Button("Swap", new Label(Constants.ICON_SWAP));
@@ -130,12 +205,37 @@ public class App extends Application {
                 if (parts.length == 2) {
                     leftPathField.setText(parts[0]);
                     rightPathField.setText(parts[1]);
+                    filterField.setText(historyService.loadFilter(parts[0], parts[1]));
                     refresh();
                 }
             }
         });
 
-        ToolBar toolBar = new ToolBar(copyBtn, moveBtn, deleteBtn, new Separator(), refreshBtn, swapBtn, new Label("History:"), historyCombo);
+        // Recursive mode lists whole trees by relative path and compares folders over their full subtree
+        recursiveCheck.setTooltip(new Tooltip("Compare all subfolders recursively"));
+        recursiveCheck.setOnAction(e -> refresh());
+
+        // Live mode follows changes on disk row by row; turning it on rescans once for a fresh baseline
+        liveCheck.setTooltip(new Tooltip("Update rows as files change on disk"));
+        liveCheck.setOnAction(e -> {
+            if (liveCheck.isSelected()) refresh(); else stopWatching();
+        });
+
+        // Comparison depth for this session; cheaper tiers triage large trees quickly
+        tierCombo.getSelectionModel().select(ComparisonTier.CONTENT);
+        tierCombo.setTooltip(new Tooltip("How thoroughly files are compared"));
+        tierCombo.setOnAction(e -> recompareAll());
+
+        // Include/exclude rules, remembered per folder pair and applied while scanning
+        filterField.setPromptText("-.git; -target/; -*.tmp; size<1G");
+        filterField.setPrefColumnCount(16);
+        filterField.setTooltip(new Tooltip("Rules separated by ';': -pattern excludes, -pattern/ excludes folders,\n"
+                + "+pattern includes files only, re:regex matches the relative path,\n"
+                + "size<N / size>N (K, M, G, T), age<N / age>N (s, m, h, d, w). Press Enter to apply."));
+        filterField.setOnAction(e -> refresh());
+
+        ToolBar toolBar = new ToolBar(copyBtn, moveBtn, deleteBtn, syncBtn, snapshotBtn, new Separator(), refreshBtn, swapBtn, recursiveCheck, liveCheck,
+                new Label("Compare:"), tierCombo, new Label("Filter:"), filterField, new Label("History:"), historyCombo);
 
         // Left panel
         leftPathField.setPromptText("Enter folder path and press Enter or drop a folder here");
@@ -196,7 +296,11 @@ public class App extends Application {
                     refresh();
                 }
             });
+            // Re-style the row's cells when its comparison result arrives from the engine
+            ChangeListener<CompareStatus> statusListener = (obs, oldS, newS) -> restyleRowCells(row, true);
             row.itemProperty().addListener((obs, oldV, newV) -> {
+                if (oldV != null) oldV.statusProperty().removeListener(statusListener);
+                if (newV != null) newV.statusProperty().addListener(statusListener);
                 boolean enable = newV != null && newV.getLeft() != null && newV.getLeft().isDirectory();
                 setBase.setDisable(!enable);
                 row.setContextMenu(enable ? menu : null);
@@ -222,7 +326,11 @@ public class App extends Application {
                     refresh();
                 }
             });
+            // Re-style the row's cells when its comparison result arrives from the engine
+            ChangeListener<CompareStatus> statusListener = (obs, oldS, newS) -> restyleRowCells(row, false);
             row.itemProperty().addListener((obs, oldV, newV) -> {
+                if (oldV != null) oldV.statusProperty().removeListener(statusListener);
+                if (newV != null) newV.statusProperty().addListener(statusListener);
                 boolean enable = newV != null && newV.getRight() != null && newV.getRight().isDirectory();
                 setBase.setDisable(!enable);
                 row.setContextMenu(enable ? menu : null);
@@ -246,6 +354,11 @@ public class App extends Application {
         copyBtn.setOnAction(e -> handleCopy());
         moveBtn.setOnAction(e -> handleMove());
         deleteBtn.setOnAction(e -> handleDelete());
+        syncBtn.setOnAction(e -> handleSync());
+        saveSnapshot.setOnAction(e -> handleSaveSnapshot());
+        diffLastSnapshot.setOnAction(e -> handleDiffLastSnapshot());
+        diffSnapshotFile.setOnAction(e -> handleDiffSnapshotFile());
+        diffSnapshotFiles.setOnAction(e -> handleDiffSnapshotFiles());
         // Enable Copy/Move/Delete only if some row is selected on either side
         var noSelection = Bindings.isEmpty(leftTable.getSelectionModel().getSelectedItems())
                 .and(Bindings.isEmpty(rightTable.getSelectionModel().getSelectedItems()));
@@ -300,7 +413,7 @@ public class App extends Application {
 
     private void configureLeftTable() {
         TableColumn<PairedEntry, String> nameCol = new TableColumn<>("Name");
-        nameCol.setCellValueFactory(new PropertyValueFactory<>("leftName"));
+        nameCol.setCellValueFactory(displayOf(PairedEntry::getLeftName));
         nameCol.setCellFactory(col -> new TableCell<>() {
             @Override protected void updateItem(String item, boolean empty) {
                 super.updateItem(item, empty);
@@ -311,7 +424,7 @@ public class App extends Application {
         });
 
         TableColumn<PairedEntry, String> sizeCol = new TableColumn<>("Size");
-        sizeCol.setCellValueFactory(new PropertyValueFactory<>("leftSizeDisplay"));
+        sizeCol.setCellValueFactory(displayOf(PairedEntry::getLeftSizeDisplay));
         sizeCol.setStyle("-fx-alignment: CENTER-RIGHT;");
         // Prefer a smaller initial width for Size column
         sizeCol.setPrefWidth(SIZE_COL_PREF_WIDTH);
@@ -327,7 +440,7 @@ public class App extends Application {
         });
 
         TableColumn<PairedEntry, String> modCol = new TableColumn<>("Modified");
-        modCol.setCellValueFactory(new PropertyValueFactory<>("leftModifiedDisplay"));
+        modCol.setCellValueFactory(displayOf(PairedEntry::getLeftModifiedDisplay));
         modCol.setCellFactory(col -> new TableCell<>() {
             @Override protected void updateItem(String item, boolean empty) {
                 super.updateItem(item, empty);
@@ -340,9 +453,18 @@ public class App extends Application {
         leftTable.getColumns().setAll(nameCol, sizeCol, modCol);
     }
 
+    /**
+     * Typed cell value factory reading one of the row's cached display texts, without the reflection
+     * of PropertyValueFactory.
+     */
+    private static Callback<TableColumn.CellDataFeatures<PairedEntry, String>, ObservableValue<String>> displayOf(
+            Function<PairedEntry, String> text) {
+        return cd -> new ReadOnlyObjectWrapper<>(cd.getValue() == null ? "" : text.apply(cd.getValue()));
+    }
+
     private void configureRightTable() {
         TableColumn<PairedEntry, String> nameCol = new TableColumn<>("Name");
-        nameCol.setCellValueFactory(new PropertyValueFactory<>("rightName"));
+        nameCol.setCellValueFactory(displayOf(PairedEntry::getRightName));
         nameCol.setCellFactory(col -> new TableCell<>() {
             @Override protected void updateItem(String item, boolean empty) {
                 super.updateItem(item, empty);
@@ -353,7 +475,7 @@ public class App extends Application {
         });
 
         TableColumn<PairedEntry, String> sizeCol = new TableColumn<>("Size");
-        sizeCol.setCellValueFactory(new PropertyValueFactory<>("rightSizeDisplay"));
+        sizeCol.setCellValueFactory(displayOf(PairedEntry::getRightSizeDisplay));
         sizeCol.setStyle("-fx-alignment: CENTER-RIGHT;");
         // Prefer a smaller initial width for Size column
         sizeCol.setPrefWidth(SIZE_COL_PREF_WIDTH);
@@ -369,7 +491,7 @@ public class App extends Application {
         });
 
         TableColumn<PairedEntry, String> modCol = new TableColumn<>("Modified");
-        modCol.setCellValueFactory(new PropertyValueFactory<>("rightModifiedDisplay"));
+        modCol.setCellValueFactory(displayOf(PairedEntry::getRightModifiedDisplay));
         modCol.setCellFactory(col -> new TableCell<>() {
             @Override protected void updateItem(String item, boolean empty) {
                 super.updateItem(item, empty);
@@ -388,39 +510,31 @@ public class App extends Application {
         Color color = Color.BLACK;
         if (pe != null) {
             boolean orphan = leftSide ? pe.isOrphanLeft() : pe.isOrphanRight();
-            if (orphan) {
+            if (orphan && pe.getStatus() == CompareStatus.RELOCATED) {
+                color = Color.TEAL;
+            } else if (orphan) {
                 color = Color.PURPLE;
-            } else if (isDifferentByContent(pe)) {
+            } else if (pe.getStatus() == CompareStatus.DIFFERENT || pe.getStatus() == CompareStatus.ERROR) {
+                // Only reads the cached result; content comparison runs in ComparisonEngine
                 color = Color.RED;
             }
         }
         cell.setTextFill(color);
+        String counterpart = pe == null || pe.getStatus() != CompareStatus.RELOCATED ? null : pe.getCounterpart();
+        if (counterpart == null) {
+            if (cell.getTooltip() != null) cell.setTooltip(null);
+        } else {
+            cell.setTooltip(new Tooltip("Same content as " + counterpart + " on the other side"));
+        }
     }
 
-    private boolean isDifferentByContent(PairedEntry pe) {
-        if (pe == null) return false;
-        var l = pe.getLeft();
-        var r = pe.getRight();
-        if (l == null || r == null) return false; // orphans handled separately for styling
-        // If one is dir and other is file => different
-        if (l.isDirectory() != r.isDirectory()) return true;
-
-        String leftRootText = leftPathField.getText();
-        String rightRootText = rightPathField.getText();
-        if (leftRootText == null || rightRootText == null) return false;
-        Path leftRoot = Path.of(leftRootText);
-        Path rightRoot = Path.of(rightRootText);
-
-        try {
-            if (l.isDirectory()) {
-                // Compare immediate files inside directories
-                return !CompareUtil.directoriesEqual(leftRoot.resolve(l.getName()), rightRoot.resolve(r.getName()));
-            } else {
-                // Compare file content using Files.mismatch
-                return !CompareUtil.filesEqual(leftRoot.resolve(l.getName()), rightRoot.resolve(r.getName()));
+    private void restyleRowCells(TableRow<PairedEntry> row, boolean leftSide) {
+        for (var node : row.getChildrenUnmodifiable()) {
+            if (node instanceof TableCell<?, ?> cell) {
+                @SuppressWarnings("unchecked")
+                TableCell<PairedEntry, String> c = (TableCell<PairedEntry, String>) cell;
+                applyStylingToCell(c, leftSide);
             }
-        } catch (Exception ex) {
-            return true; // be conservative: on error treat as different
         }
     }
 
@@ -529,7 +643,7 @@ public class App extends Application {
         String content = "From " + direction + "\n\n" +
                 "Files: " + fileCount + "\n" +
                 "Folders: " + dirCount + "\n\n" +
-                "Existing files with the same name will be overwritten.";
+                "Existing files with the same name will be overwritten." + reuseNote(selected);
 
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Confirm Copy");
@@ -541,33 +655,7 @@ public class App extends Application {
             return;
         }
 
-        int success = 0;
-        int fail = 0;
-        for (FileInfo fi : targets) {
-            Path src = srcDir.resolve(fi.getName());
-            Path dst = dstDir.resolve(fi.getName());
-            try {
-                if (fi.isDirectory()) {
-                    FileOperations.copyRecursive(src, dst);
-                } else {
-                    Files.createDirectories(dst.getParent());
-                    Files.copy(src, dst, StandardCopyOption.REPLACE_EXISTING);
-                }
-                success++;
-                System.out.println("[INFO] Copied " + (leftToRight ? "left->right" : "right->left") + ": " + src + " -> " + dst);
-            } catch (Exception ex) {
-                fail++;
-                System.out.println("[WARN] Copy failed for '" + src + "': " + ex.getMessage());
-            }
-        }
-
-        if (fail > 0) {
-            Alert done = new Alert(Alert.AlertType.INFORMATION, success + " copied, " + fail + " failed.", ButtonType.OK);
-            done.setHeaderText("Copy completed with issues");
-            done.showAndWait();
-        }
-
-        refresh();
+        runTransfer(new TransferJob(TransferJob.Kind.COPY, transferItems(selected, leftToRight, srcDir, dstDir), hashCache));
     }
 
     private void handleMove() {
@@ -625,7 +713,7 @@ public class App extends Application {
                 "Files: " + fileCount + "\n" +
                 "Folders: " + dirCount + "\n\n" +
                 "Warning: Existing files with the same name at the destination will be overwritten.\n" +
-                "Items will be removed from the source after moving.";
+                "Items will be removed from the source after moving." + reuseNote(selected);
 
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Confirm Move");
@@ -637,39 +725,29 @@ public class App extends Application {
             return;
         }
 
-        int success = 0;
-        int fail = 0;
-        for (FileInfo fi : targets) {
-            Path src = srcDir.resolve(fi.getName());
-            Path dst = dstDir.resolve(fi.getName());
-            try {
-                if (fi.isDirectory()) {
-                    FileOperations.moveRecursive(src, dst);
-                } else {
-                    // Try direct move, fallback to copy+delete
-                    try {
-                        Files.createDirectories(dst.getParent());
-                        Files.move(src, dst, StandardCopyOption.REPLACE_EXISTING);
-                    } catch (Exception ex) {
-                        FileOperations.copyRecursive(src, dst);
-                        FileOperations.deleteRecursive(src);
-                    }
-                }
-                success++;
-                System.out.println("[INFO] Moved " + (leftToRight ? "left->right" : "right->left") + ": " + src + " -> " + dst);
-            } catch (Exception ex) {
-                fail++;
-                System.out.println("[WARN] Move failed for '" + src + "': " + ex.getMessage());
-            }
-        }
+        runTransfer(new TransferJob(TransferJob.Kind.MOVE, transferItems(selected, leftToRight, srcDir, dstDir), hashCache));
+    }
 
-        if (fail > 0) {
-            Alert done = new Alert(Alert.AlertType.INFORMATION, success + " moved, " + fail + " failed.", ButtonType.OK);
-            done.setHeaderText("Move completed with issues");
-            done.showAndWait();
+    /**
+     * Copy or move items for the selected rows. Relocated files are copied from their counterpart on the
+     * destination side instead of being transferred.
+     */
+    private static List<TransferJob.Item> transferItems(List<PairedEntry> selected, boolean leftToRight, Path srcDir, Path dstDir) {
+        List<TransferJob.Item> items = new ArrayList<>();
+        for (PairedEntry pe : selected) {
+            FileInfo fi = leftToRight ? pe.getLeft() : pe.getRight();
+            if (fi == null) continue;
+            Path local = pe.getStatus() == CompareStatus.RELOCATED && pe.getCounterpart() != null
+                    ? dstDir.resolve(pe.getCounterpart()) : null;
+            items.add(new TransferJob.Item(srcDir.resolve(fi.getName()), dstDir.resolve(fi.getName()), local));
         }
+        return items;
+    }
 
-        refresh();
+    private static String reuseNote(List<PairedEntry> selected) {
+        long relocated = selected.stream().filter(pe -> pe.getStatus() == CompareStatus.RELOCATED).count();
+        return relocated == 0 ? "" : "\n\n" + relocated + (relocated == 1 ? " file is" : " files are")
+                + " already at the destination under another name and will be copied there locally.";
     }
 
     private void handleDelete() {
@@ -741,31 +819,332 @@ public class App extends Application {
             return;
         }
 
-        int success = 0;
-        int fail = 0;
+        List<TransferJob.Item> jobItems = new ArrayList<>();
         for (FileInfo fi : targets) {
-            Path p = targetDir.resolve(fi.getName());
+            jobItems.add(new TransferJob.Item(targetDir.resolve(fi.getName()), null));
+        }
+        runTransfer(new TransferJob(TransferJob.Kind.DELETE, jobItems));
+    }
+
+    /**
+     * Plans a synchronization of the whole comparison, shows it for review and runs it as one batch.
+     * The plan is recomputed whenever the direction or the delete option changes.
+     */
+    private void handleSync() {
+        if (!ensureComparisonFinished()) {
+            return;
+        }
+        if (!(Files.isDirectory(scanLeftRoot) && Files.isDirectory(scanRightRoot))) {
+            Alert a = new Alert(Alert.AlertType.WARNING, "Both left and right paths must be valid directories.", ButtonType.OK);
+            a.setHeaderText("Invalid folders");
+            a.showAndWait();
+            return;
+        }
+
+        ToggleGroup direction = new ToggleGroup();
+        RadioButton leftToRight = new RadioButton("Left → right");
+        RadioButton rightToLeft = new RadioButton("Right → left");
+        leftToRight.setToggleGroup(direction);
+        rightToLeft.setToggleGroup(direction);
+        leftToRight.setSelected(true);
+        CheckBox deleteOrphans = new CheckBox("Delete entries missing on the source side");
+        Label summary = new Label();
+        TextArea details = new TextArea();
+        details.setEditable(false);
+        details.setPrefRowCount(15);
+        details.setPrefColumnCount(60);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.initOwner(leftTable.getScene().getWindow());
+        dialog.setTitle("Sync preview");
+        dialog.setHeaderText("Nothing is changed until you press Run.");
+        ButtonType run = new ButtonType("Run", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().setAll(run, ButtonType.CANCEL);
+        dialog.getDialogPane().setContent(new VBox(8, new HBox(12, leftToRight, rightToLeft), deleteOrphans, summary, details));
+        dialog.setResizable(true);
+
+        List<PairedEntry> rows = List.copyOf(items);
+        SyncPlanner.Plan[] plan = new SyncPlanner.Plan[1];
+        Runnable update = () -> {
+            plan[0] = SyncPlanner.plan(rows, scanLeftRoot, scanRightRoot, leftToRight.isSelected(), scanRecursive,
+                    deleteOrphans.isSelected());
+            summary.setText(describe(plan[0]));
+            details.setText(listActions(plan[0]));
+            dialog.getDialogPane().lookupButton(run).setDisable(plan[0].isEmpty());
+        };
+        direction.selectedToggleProperty().addListener((obs, o, n) -> update.run());
+        deleteOrphans.setOnAction(e -> update.run());
+        update.run();
+
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != run) {
+            return;
+        }
+        System.out.println("[INFO] Sync " + plan[0].sourceRoot() + " -> " + plan[0].targetRoot() + ": " + plan[0].actions().size() + " actions");
+        runTransfer(new TransferJob(plan[0]));
+    }
+
+    private static String describe(SyncPlanner.Plan plan) {
+        if (plan.isEmpty()) {
+            return "Both sides already match." + (plan.skipped().isEmpty() ? "" : " " + plan.skipped().size() + " rows skipped.");
+        }
+        long wholeFolders = plan.actions().stream()
+                .filter(a -> (a.type() == SyncPlanner.Type.COPY || a.type() == SyncPlanner.Type.UPDATE) && a.size() < 0).count();
+        return "Folders to create: " + plan.count(SyncPlanner.Type.CREATE_FOLDER) + "\n"
+                + "Files to copy: " + plan.count(SyncPlanner.Type.COPY) + "\n"
+                + "Files to update: " + plan.count(SyncPlanner.Type.UPDATE) + "\n"
+                + "Files to rename on the target: " + plan.count(SyncPlanner.Type.RENAME) + "\n"
+                + "Entries to delete: " + plan.count(SyncPlanner.Type.DELETE) + "\n"
+                + (plan.count(SyncPlanner.Type.PRUNE) == 0 ? ""
+                        : "Folders cleared of entries the source lacks: " + plan.count(SyncPlanner.Type.PRUNE) + "\n")
+                + "Bytes to transfer: " + TransferDialog.formatBytes(plan.bytes())
+                + (wholeFolders == 0 ? "" : " plus " + wholeFolders + " folder(s) copied whole")
+                + (plan.skipped().isEmpty() ? "" : "\nSkipped (type conflict or comparison error): " + plan.skipped().size());
+    }
+
+    private static String listActions(SyncPlanner.Plan plan) {
+        StringBuilder sb = new StringBuilder();
+        int shown = 0;
+        for (SyncPlanner.Action a : plan.actions()) {
+            if (shown++ == Constants.SYNC_PREVIEW_MAX_LINES) {
+                sb.append("… and ").append(plan.actions().size() - Constants.SYNC_PREVIEW_MAX_LINES).append(" more\n");
+                break;
+            }
+            sb.append(a.type().getTitle()).append(": ");
+            sb.append(a.type() == SyncPlanner.Type.RENAME ? a.source() + " → " + a.target() : a.target());
+            if (a.size() > 0 && !a.folder()) sb.append(" (").append(TransferDialog.formatBytes(a.size())).append(')');
+            sb.append('\n');
+        }
+        for (String name : plan.skipped()) {
+            sb.append("Skip: ").append(name).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tells the user to wait while rows are still being scanned or compared.
+     *
+     * @return whether the comparison has finished
+     */
+    private boolean ensureComparisonFinished() {
+        if (!scanComplete || items.stream().anyMatch(pe -> pe.getStatus() == CompareStatus.PENDING)) {
+            Alert a = new Alert(Alert.AlertType.INFORMATION, "Wait until the comparison has finished.", ButtonType.OK);
+            a.setHeaderText("Comparison in progress");
+            a.showAndWait();
+            return false;
+        }
+        return true;
+    }
+
+    private ComparisonSnapshot captureSnapshot() {
+        return ComparisonSnapshot.capture(List.copyOf(items), scanLeftRoot, scanRightRoot, scanRecursive,
+                tierCombo.getValue().name(), scanFilter.spec(), hashCache);
+    }
+
+    private static Path snapshotDir() {
+        return Path.of(System.getProperty("user.home"), Constants.APP_DATA_DIR, Constants.SNAPSHOT_DIR);
+    }
+
+    /**
+     * Saves the finished comparison to a new file in the snapshot folder and links it to the folder pair.
+     */
+    private void handleSaveSnapshot() {
+        if (!ensureComparisonFinished()) {
+            return;
+        }
+        ComparisonSnapshot snapshot = captureSnapshot();
+        String left = scanLeftRoot.toString();
+        String right = scanRightRoot.toString();
+        Path file = snapshotDir().resolve("snapshot-" + SNAPSHOT_FILE_TIME.format(LocalDateTime.now()) + Constants.SNAPSHOT_EXTENSION);
+        scanExecutor.execute(() -> {
             try {
-                if (fi.isDirectory()) {
-                    FileOperations.deleteRecursive(p);
-                } else {
-                    Files.deleteIfExists(p);
-                }
-                success++;
-                System.out.println("[INFO] Deleted: " + p);
-            } catch (Exception ex) {
-                fail++;
-                System.out.println("[WARN] Delete failed for '" + p + "': " + ex.getMessage());
+                snapshot.save(file);
+                Platform.runLater(() -> historyService.saveSnapshotLink(left, right, file));
+                System.out.println("[INFO] Saved snapshot of " + snapshot.getEntries().size() + " rows to " + file);
+            } catch (IOException ex) {
+                System.out.println("[WARN] Could not save snapshot: " + ex.getMessage());
+                Platform.runLater(() -> {
+                    Alert a = new Alert(Alert.AlertType.WARNING, ex.getMessage(), ButtonType.OK);
+                    a.setHeaderText("Could not save snapshot");
+                    a.showAndWait();
+                });
             }
+        });
+    }
+
+    /**
+     * Diffs the finished comparison against the snapshot last saved for this folder pair.
+     */
+    private void handleDiffLastSnapshot() {
+        if (!ensureComparisonFinished()) {
+            return;
+        }
+        Path file = historyService.loadSnapshotLink(scanLeftRoot.toString(), scanRightRoot.toString());
+        if (file == null || !Files.isRegularFile(file)) {
+            Alert a = new Alert(Alert.AlertType.INFORMATION, "Save a snapshot of this folder pair first.", ButtonType.OK);
+            a.setHeaderText("No snapshot");
+            a.showAndWait();
+            return;
         }
+        showSnapshotDiff(file, null, captureSnapshot());
+    }
 
-        if (fail > 0) {
-            Alert done = new Alert(Alert.AlertType.INFORMATION, success + " deleted, " + fail + " failed.", ButtonType.OK);
-            done.setHeaderText("Delete completed with issues");
-            done.showAndWait();
+    private void handleDiffSnapshotFile() {
+        if (!ensureComparisonFinished()) {
+            return;
         }
+        Path file = chooseSnapshot("Open snapshot");
+        if (file != null) {
+            showSnapshotDiff(file, null, captureSnapshot());
+        }
+    }
 
-        refresh();
+    private void handleDiffSnapshotFiles() {
+        Path older = chooseSnapshot("Open older snapshot");
+        if (older == null) return;
+        Path newer = chooseSnapshot("Open newer snapshot");
+        if (newer == null) return;
+        showSnapshotDiff(older, newer, null);
+    }
+
+    private Path chooseSnapshot(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Comparison snapshots", "*" + Constants.SNAPSHOT_EXTENSION));
+        if (Files.isDirectory(snapshotDir())) {
+            chooser.setInitialDirectory(snapshotDir().toFile());
+        }
+        File file = chooser.showOpenDialog(leftTable.getScene().getWindow());
+        return file == null ? null : file.toPath();
+    }
+
+    /**
+     * Loads the snapshots on the scan thread, diffs them and lists the changed rows.
+     *
+     * @param newerFile the newer snapshot, or null to diff against {@code current}
+     */
+    private void showSnapshotDiff(Path olderFile, Path newerFile, ComparisonSnapshot current) {
+        scanExecutor.execute(() -> {
+            try {
+                ComparisonSnapshot before = ComparisonSnapshot.load(olderFile);
+                ComparisonSnapshot after = newerFile == null ? current : ComparisonSnapshot.load(newerFile);
+                List<ComparisonSnapshot.Difference> changes = ComparisonSnapshot.diff(before, after);
+                Platform.runLater(() -> showChanges(before, after, changes, newerFile == null));
+            } catch (IOException | IllegalArgumentException ex) {
+                Platform.runLater(() -> {
+                    Alert a = new Alert(Alert.AlertType.WARNING, ex.getMessage(), ButtonType.OK);
+                    a.setHeaderText("Could not compare snapshots");
+                    a.showAndWait();
+                });
+            }
+        });
+    }
+
+    private void showChanges(ComparisonSnapshot before, ComparisonSnapshot after,
+                             List<ComparisonSnapshot.Difference> changes, boolean afterIsCurrent) {
+        Label summary = new Label(describe(before, after, changes));
+        TextArea details = new TextArea(listChanges(changes));
+        details.setEditable(false);
+        details.setPrefRowCount(15);
+        details.setPrefColumnCount(60);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.initOwner(leftTable.getScene().getWindow());
+        dialog.setTitle("Changes");
+        dialog.setHeaderText("From " + formatTime(before.getCreatedMillis()) + " to "
+                + (afterIsCurrent ? "now" : formatTime(after.getCreatedMillis())));
+        dialog.getDialogPane().getButtonTypes().setAll(ButtonType.CLOSE);
+        dialog.getDialogPane().setContent(new VBox(8, summary, details));
+        dialog.setResizable(true);
+        dialog.showAndWait();
+    }
+
+    private static String formatTime(long epochMillis) {
+        return Constants.DATE_TIME_FORMATTER.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()));
+    }
+
+    private static String describe(ComparisonSnapshot before, ComparisonSnapshot after,
+                                   List<ComparisonSnapshot.Difference> changes) {
+        StringBuilder sb = new StringBuilder();
+        if (!before.getLeftRoot().equals(after.getLeftRoot()) || !before.getRightRoot().equals(after.getRightRoot())) {
+            sb.append("Folders: ").append(before.getLeftRoot()).append(" \u2194 ").append(before.getRightRoot())
+                    .append(", then ").append(after.getLeftRoot()).append(" \u2194 ").append(after.getRightRoot()).append('\n');
+        }
+        if (!before.getFilter().equals(after.getFilter())) {
+            sb.append("Filter: \"").append(before.getFilter()).append("\", then \"").append(after.getFilter()).append("\"\n");
+        }
+        if (changes.isEmpty()) {
+            return sb.append("Nothing changed.").toString();
+        }
+        for (boolean left : new boolean[] {true, false}) {
+            sb.append(left ? "Left: " : "Right: ");
+            for (ComparisonSnapshot.Change c : ComparisonSnapshot.Change.values()) {
+                long n = changes.stream().filter(d -> (left ? d.left() : d.right()) == c).count();
+                sb.append(n).append(' ').append(c.getTitle()).append(c == ComparisonSnapshot.Change.MODIFIED ? "\n" : ", ");
+            }
+        }
+        long status = changes.stream().filter(d -> d.before() != null && d.after() != null && d.before() != d.after()).count();
+        return sb.append("Comparison result changed: ").append(status).toString();
+    }
+
+    private static String listChanges(List<ComparisonSnapshot.Difference> changes) {
+        StringBuilder sb = new StringBuilder();
+        int shown = 0;
+        for (ComparisonSnapshot.Difference d : changes) {
+            if (shown++ == Constants.SNAPSHOT_DIFF_MAX_LINES) {
+                sb.append("… and ").append(changes.size() - Constants.SNAPSHOT_DIFF_MAX_LINES).append(" more\n");
+                break;
+            }
+            sb.append(d.name()).append(':');
+            if (d.left() != null) sb.append(" left ").append(d.left().getTitle()).append(';');
+            if (d.right() != null) sb.append(" right ").append(d.right().getTitle()).append(';');
+            if (d.before() != null && d.after() != null && d.before() != d.after()) {
+                sb.append(' ').append(d.before()).append(" \u2192 ").append(d.after()).append(';');
+            }
+            sb.setLength(sb.length() - 1);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Runs a copy/move/delete job in the background with a progress window, then updates the rows it touched.
+     */
+    private void runTransfer(TransferJob job) {
+        TransferDialog.run(leftTable.getScene().getWindow(), job, this::refreshTouched);
+    }
+
+    /**
+     * Re-reads and compares only the rows under the sources and targets of a transfer, leaving every other
+     * row and its comparison result as it is. Falls back to a full refresh when a path lies outside the
+     * scanned folders or the scan has not finished yet.
+     */
+    private void refreshTouched(List<TransferResult> results) {
+        Path leftRoot = scanLeftRoot.toAbsolutePath().normalize();
+        Path rightRoot = scanRightRoot.toAbsolutePath().normalize();
+        Set<String> names = new HashSet<>();
+        Set<String> subtrees = new HashSet<>();
+        for (TransferResult r : results) {
+            for (Path p : new Path[] {r.source(), r.target()}) {
+                if (p == null) continue;
+                Path abs = p.toAbsolutePath().normalize();
+                // With one compared folder inside the other, a path can be a row on both sides
+                List<Path> roots = Stream.of(leftRoot, rightRoot).filter(abs::startsWith).distinct().toList();
+                if (!scanComplete || roots.isEmpty() || roots.contains(abs)) {
+                    refresh();
+                    return;
+                }
+                for (Path root : roots) {
+                    RowPatcher.addRowNames(root, abs, scanRecursive, names);
+                    if (scanRecursive) {
+                        // A folder's rows below it may have been created, overwritten or removed
+                        String name = root.relativize(abs).toString();
+                        subtrees.add(name);
+                        names.addAll(RowPatcher.rowsBelow(items, name));
+                    }
+                }
+            }
+        }
+        patchRows(names, subtrees);
     }
 
 
@@ -803,25 +1182,230 @@ public class App extends Application {
     private void refresh() {
         String leftPath = leftPathField.getText() == null ? "" : leftPathField.getText().trim();
         String rightPath = rightPathField.getText() == null ? "" : rightPathField.getText().trim();
+        boolean recursive = recursiveCheck.isSelected();
+        EntryFilter filter;
+        try {
+            filter = EntryFilter.parse(filterField.getText());
+        } catch (IllegalArgumentException ex) {
+            Alert a = new Alert(Alert.AlertType.WARNING, ex.getMessage(), ButtonType.OK);
+            a.setHeaderText("Invalid filter");
+            a.showAndWait();
+            return;
+        }
+
+        // Supersede any scan and comparisons still running for the previous refresh
+        long gen = scanGeneration.incrementAndGet();
+        rowPublisher.clear();
+        comparisonEngine.cancel();
+        comparisonEngine.setRecursive(recursive);
+        comparisonEngine.setTier(tierCombo.getValue());
+        comparisonEngine.setFilter(filter);
+        scanLeftRoot = Path.of(leftPath);
+        scanRightRoot = Path.of(rightPath);
+        scanRecursive = recursive;
+        scanFilter = filter;
+        items.clear();
+        scanComplete = false;
+        pendingChanges.clear();
+        // Watch before scanning, so nothing changed during the scan is missed
+        startWatching(gen);
+
+        // Rows stream in batch by batch, already in final sorted order
+        scanExecutor.execute(() -> {
+            StreamingScanner.scan(leftPath, rightPath, recursive, filter, Constants.SCAN_BATCH_SIZE,
+                    batch -> rowPublisher.offer(new RowBatch(gen, batch, false)),
+                    () -> scanGeneration.get() != gen);
+            rowPublisher.offer(new RowBatch(gen, List.of(), true));
+        });
+
+        // Update history (only when both are valid directories)
+        addToHistoryIfValid(leftPath, rightPath);
+        if (!leftPath.isBlank() && !rightPath.isBlank()) {
+            historyService.saveFilter(leftPath, rightPath, filter.spec());
+        }
+    }
+
+    /**
+     * Re-runs the comparison of all rows with the selected tier, without rescanning. Files already linked to a
+     * renamed or moved twin keep their link; the other files on one side only are searched for twins again.
+     */
+    private void recompareAll() {
+        comparisonEngine.cancel();
+        comparisonEngine.setTier(tierCombo.getValue());
+        List<PairedEntry> rows = new ArrayList<>(items.size());
+        for (PairedEntry pe : items) {
+            if (pe.getStatus() == CompareStatus.RELOCATED) continue;
+            pe.setStatus(CompareStatus.PENDING);
+            rows.add(pe);
+        }
+        comparisonEngine.submit(rows, scanLeftRoot, scanRightRoot);
+        if (scanComplete) detectRenames();
+    }
+
+    /**
+     * Appends the rows that arrived since the last pulse and queues them for content comparison.
+     */
+    private void appendRows(List<RowBatch> batches) {
+        List<PairedEntry> rows = new ArrayList<>();
+        boolean last = false;
+        for (RowBatch b : batches) {
+            if (b.generation() == scanGeneration.get()) {
+                rows.addAll(b.rows());
+                last |= b.last();
+            }
+        }
+        if (!rows.isEmpty()) {
+            items.addAll(rows);
+            comparisonEngine.submit(rows, scanLeftRoot, scanRightRoot);
+        }
+        if (last) {
+            scanComplete = true;
+            if (scanRecursive) ComparisonEngine.resolveFolders(items);
+            detectRenames();
+            patchPendingChanges();
+        }
+    }
 
-        Map<String, FileInfo> leftMap = DirectoryScanner.scanDir(leftPath);
-        Map<String, FileInfo> rightMap = DirectoryScanner.scanDir(rightPath);
+    /**
+     * Links files found on one side only to files with the same content on the other side, once the scan
+     * is complete. Skipped in the metadata tier, which promises not to read contents.
+     */
+    private void detectRenames() {
+        if (tierCombo.getValue() == ComparisonTier.METADATA) return;
+        Map<String, PairedEntry> leftOrphans = new HashMap<>();
+        Map<String, PairedEntry> rightOrphans = new HashMap<>();
+        List<RenameDetector.Candidate> left = new ArrayList<>();
+        List<RenameDetector.Candidate> right = new ArrayList<>();
+        for (PairedEntry pe : items) {
+            if (pe.hasLeft() == pe.hasRight() || pe.getStatus() == CompareStatus.RELOCATED) continue;
+            FileInfo fi = pe.hasLeft() ? pe.getLeft() : pe.getRight();
+            if (fi.isDirectory()) continue;
+            (pe.hasLeft() ? leftOrphans : rightOrphans).put(fi.getName(), pe);
+            (pe.hasLeft() ? left : right).add(new RenameDetector.Candidate(fi.getName(), fi.getSize()));
+        }
+        if (left.isEmpty() || right.isEmpty()) return;
+
+        long gen = scanGeneration.get();
+        Path leftRoot = scanLeftRoot;
+        Path rightRoot = scanRightRoot;
+        renameExecutor.execute(() -> {
+            List<RenameDetector.Match> matches = RenameDetector.detect(leftRoot, left, rightRoot, right, hashCache,
+                    () -> scanGeneration.get() != gen);
+            if (matches.isEmpty()) return;
+            Platform.runLater(() -> {
+                if (scanGeneration.get() != gen) return;
+                for (RenameDetector.Match m : matches) {
+                    PairedEntry l = leftOrphans.get(m.leftName());
+                    PairedEntry r = rightOrphans.get(m.rightName());
+                    l.setCounterpart(m.rightName());
+                    r.setCounterpart(m.leftName());
+                    l.setStatus(CompareStatus.RELOCATED);
+                    r.setStatus(CompareStatus.RELOCATED);
+                }
+                System.out.println("[INFO] Linked " + matches.size() + " renamed or moved file(s) by content");
+            });
+        });
+    }
+
+    /**
+     * Starts watching the scanned folders when live mode is on. Bursts of changes are patched into
+     * the affected rows; lost events trigger a full refresh. Registering a large tree walks all of it,
+     * so the watcher is built on the scan thread, ahead of the scan, and installed once it is ready.
+     */
+    private void startWatching(long gen) {
+        stopWatching();
+        if (!liveCheck.isSelected() || scanLeftRoot.toString().isEmpty() || scanRightRoot.toString().isEmpty()) {
+            return;
+        }
+        Path leftRoot = scanLeftRoot;
+        Path rightRoot = scanRightRoot;
+        boolean recursive = scanRecursive;
+        EntryFilter filter = scanFilter;
+        scanExecutor.execute(() -> {
+            if (scanGeneration.get() != gen || !Files.isDirectory(leftRoot) || !Files.isDirectory(rightRoot)) return;
+            FolderWatcher watcher;
+            try {
+                watcher = new FolderWatcher(leftRoot, rightRoot, recursive, filter,
+                        Constants.WATCH_COALESCE_MILLIS, Constants.WATCH_MAX_DELAY_MILLIS,
+                        names -> Platform.runLater(() -> onWatchedChanges(gen, names)),
+                        () -> Platform.runLater(() -> {
+                            if (scanGeneration.get() == gen) {
+                                System.out.println("[INFO] Watch events were lost; rescanning");
+                                refresh();
+                            }
+                        }));
+            } catch (IOException ex) {
+                System.out.println("[WARN] Could not watch folders, live mode is off: " + ex.getMessage());
+                return;
+            }
+            Platform.runLater(() -> {
+                if (scanGeneration.get() != gen || !liveCheck.isSelected()) {
+                    watcher.close();
+                    return;
+                }
+                stopWatching();
+                folderWatcher = watcher;
+                watcher.start();
+            });
+        });
+    }
 
-        TreeSet<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-        names.addAll(leftMap.keySet());
-        names.addAll(rightMap.keySet());
+    private void stopWatching() {
+        if (folderWatcher != null) {
+            folderWatcher.close();
+            folderWatcher = null;
+        }
+    }
 
-        List<PairedEntry> list = new ArrayList<>();
-        for (String n : names) {
-            FileInfo l = leftMap.get(n);
-            FileInfo r = rightMap.get(n);
-            list.add(new PairedEntry(l, r));
+    private void onWatchedChanges(long gen, Set<String> names) {
+        if (scanGeneration.get() != gen) return;
+        pendingChanges.addAll(names);
+        // Rows still streaming in would be duplicated by a patch; wait for the scan to finish
+        if (scanComplete) {
+            patchPendingChanges();
         }
+    }
 
-        items.setAll(list);
+    private void patchPendingChanges() {
+        if (pendingChanges.isEmpty()) return;
+        Set<String> names = new HashSet<>(pendingChanges);
+        pendingChanges.clear();
+        patchRows(names, Set.of());
+    }
 
-        // Update history (only when both are valid directories)
-        addToHistoryIfValid(leftPath, rightPath);
+    /**
+     * Re-reads the given row names on the scan thread, then replaces just those rows and compares them again.
+     *
+     * @param subtrees folders whose entries on disk are re-read as well (recursive mode)
+     */
+    private void patchRows(Set<String> names, Set<String> subtrees) {
+        if (names.isEmpty()) return;
+        long gen = scanGeneration.get();
+        Path leftRoot = scanLeftRoot;
+        Path rightRoot = scanRightRoot;
+        boolean recursive = scanRecursive;
+        EntryFilter filter = scanFilter;
+        scanExecutor.execute(() -> {
+            try {
+                for (String folder : subtrees) {
+                    RowPatcher.addSubtreeNames(leftRoot, folder, names);
+                    RowPatcher.addSubtreeNames(rightRoot, folder, names);
+                }
+            } catch (IOException ex) {
+                // Rows below the folder cannot be told apart from rows that are gone; rescan instead
+                System.out.println("[WARN] Could not list changed folder, rescanning: " + ex.getMessage());
+                Platform.runLater(() -> {
+                    if (scanGeneration.get() == gen) refresh();
+                });
+                return;
+            }
+            List<RowPatcher.Patch> patches = RowPatcher.restat(leftRoot, rightRoot, names, filter);
+            Platform.runLater(() -> {
+                if (scanGeneration.get() != gen) return;
+                List<PairedEntry> changed = RowPatcher.apply(items, patches, recursive);
+                comparisonEngine.submit(changed, leftRoot, rightRoot);
+            });
+        });
     }
 
 
@@ -829,6 +1413,20 @@ public class App extends Application {
     public void stop() {
         // Ensure history is persisted on application exit
         saveHistoryToPrefs();
+        scanGeneration.incrementAndGet();
+        stopWatching();
+        scanExecutor.shutdownNow();
+        renameExecutor.shutdownNow();
+        if (comparisonEngine != null) {
+            comparisonEngine.close();
+        }
+        if (hashCache != null) {
+            try {
+                hashCache.save(ContentHashCache.defaultLocation());
+            } catch (Exception ex) {
+                System.out.println("[WARN] Could not save hash cache: " + ex.getMessage());
+            }
+        }
     }
 
 
@@ -1,6 +1,7 @@
 package net.parksy.foldercompare;
 
 import java.time.format.DateTimeFormatter;
+import java.util.prefs.Preferences;
 
 /**
  * Centralized constants to avoid magic strings/numbers scattered in the code.
@@ -13,6 +14,19 @@ public final class Constants {
     public static final String PREF_HISTORY_COUNT = "history.count";
     public static final String PREF_HISTORY_PREFIX = "history.";
     public static final int MAX_HISTORY_ITEMS = 10;
+    /** Filter rules per folder pair, keyed by a hash of both paths. */
+    public static final String PREF_FILTER_PREFIX = "filter.";
+    /** Longest filter rules accepted, so that they fit in one preference value. */
+    public static final int MAX_FILTER_LENGTH = Preferences.MAX_VALUE_LENGTH;
+    /** Last comparison snapshot file per folder pair, keyed like the filter rules. */
+    public static final String PREF_SNAPSHOT_PREFIX = "snapshot.";
+
+    // Per-user data files (next to the preferences, under the user's home)
+    public static final String APP_DATA_DIR = ".foldercompare";
+    public static final String HASH_CACHE_FILE = "hash-cache.bin";
+    public static final int HASH_CACHE_MAX_ENTRIES = 200_000;
+    public static final String SNAPSHOT_DIR = "snapshots";
+    public static final String SNAPSHOT_EXTENSION = ".fcsnap";
 
     // UI symbols
     public static final String ICON_COPY_NEUTRAL = "⧉";
@@ -22,6 +36,55 @@ public final class Constants {
     public static final String ICON_REFRESH = "↻";
     public static final String ICON_SWAP = "⇄";
     public static final String ICON_TRASH = "🗑";
+    public static final String ICON_SYNC = "⇉";
+    public static final String ICON_SNAPSHOT = "◷";
+
+    // Scanning
+    /** Rows per batch handed to the UI while a scan streams in. */
+    public static final int SCAN_BATCH_SIZE = 256;
+
+    // I/O concurrency
+    /** Stat and compare calls in flight per file store (-Dfoldercompare.ioConcurrency, or .ioConcurrency.<type> per store type). */
+    public static final int IO_CONCURRENCY_PER_STORE = Integer.getInteger("foldercompare.ioConcurrency", 16);
+    /** Platform threads for blocking I/O when the runtime has no virtual threads. */
+    public static final int IO_PLATFORM_THREADS = 64;
+
+    // Live mode
+    /** Quiet period after the last file system event before changed rows are patched. */
+    public static final long WATCH_COALESCE_MILLIS = 300;
+    /** Longest a burst of events is held back while writes keep coming. */
+    public static final long WATCH_MAX_DELAY_MILLIS = 2000;
+
+    // Comparison
+    /** Files at least this large are compared through parallel memory-mapped regions (-Dfoldercompare.largeFileThreshold). */
+    public static final long LARGE_FILE_THRESHOLD = Long.getLong("foldercompare.largeFileThreshold", 64L * 1024 * 1024);
+    /** Size of each mapped region compared by one worker. */
+    public static final int MAPPED_REGION_SIZE = 32 * 1024 * 1024;
+    /** Block size and number of random blocks read by the sampled comparison tier (plus head and tail). */
+    public static final int SAMPLE_BLOCK_SIZE = 64 * 1024;
+    public static final int SAMPLE_BLOCK_COUNT = 8;
+    /** Files smaller than this are never linked by rename detection (every empty file would match). */
+    public static final long RENAME_MIN_SIZE = 1;
+    /** Bytes hashed at the head and at the tail of a file before rename detection reads all of it. */
+    public static final int RENAME_PARTIAL_HASH_BYTES = 64 * 1024;
+    /** Folders whose digests are remembered for the session (see DirectoryDigests). */
+    public static final int DIRECTORY_DIGEST_MAX_ENTRIES = 50_000;
+
+    // Copying
+    /** Files at least this large are copied on the large-file pool. */
+    public static final long COPY_LARGE_FILE_THRESHOLD = 16L * 1024 * 1024;
+    /** Concurrent copies of small files, which are dominated by per-file latency rather than bandwidth. */
+    public static final int COPY_SMALL_FILE_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    /** Concurrent copies of large files; kept low so sequential reads are not interleaved into seeks. */
+    public static final int COPY_LARGE_FILE_THREADS = 2;
+    /** Existing destination files at least this large are updated block by block instead of rewritten. */
+    public static final long DELTA_COPY_MIN_SIZE = 64L * 1024 * 1024;
+    /** Block compared, and rewritten when it differs, by a delta copy. */
+    public static final int DELTA_COPY_BLOCK_SIZE = 256 * 1024;
+    /** Actions listed in the sync preview; the summary above the list still counts all of them. */
+    public static final int SYNC_PREVIEW_MAX_LINES = 500;
+    /** Changed rows listed when diffing against a snapshot; the summary still counts all of them. */
+    public static final int SNAPSHOT_DIFF_MAX_LINES = 500;
 
     // Formatting
     public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -1,9 +1,14 @@
 package net.parksy.foldercompare;
 
 import javafx.application.Application;
+import net.parksy.foldercompare.cli.CompareCli;
 
 public class Main {
     public static void main(String[] args) {
+        // With arguments, compare headless; JavaFX is never touched on that path
+        if (args.length > 0) {
+            System.exit(CompareCli.run(args, System.out, System.err));
+        }
         Application.launch(App.class, args);
     }
 }
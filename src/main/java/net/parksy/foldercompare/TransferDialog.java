@@ -0,0 +1,164 @@
+package net.parksy.foldercompare;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+import net.parksy.foldercompare.fs.TransferProgress;
+import net.parksy.foldercompare.fs.TransferResult;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@link TransferJob} on a background thread while showing live throughput, ETA and a Cancel button.
+ * When the job ends, a per-item summary is shown if anything failed or was cancelled.
+ */
+public final class TransferDialog {
+    private TransferDialog() {}
+
+    private static final Duration REFRESH_INTERVAL = Duration.millis(250);
+
+    /**
+     * @param onFinished called on the FX thread with the per-item results once the job and any summary are done
+     */
+    public static void run(Window owner, TransferJob job, Consumer<List<TransferResult>> onFinished) {
+        TransferProgress progress = job.getTransferProgress();
+        String title = job.getKind().getTitle();
+
+        ProgressBar bar = new ProgressBar(ProgressBar.INDETERMINATE_PROGRESS);
+        bar.setMaxWidth(Double.MAX_VALUE);
+        Label counts = new Label("Preparing…");
+        Label rates = new Label("");
+        Button cancelBtn = new Button("Cancel");
+        cancelBtn.setOnAction(e -> {
+            progress.cancel();
+            cancelBtn.setDisable(true);
+            counts.setText("Cancelling…");
+        });
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        VBox root = new VBox(8, bar, counts, rates, new HBox(spacer, cancelBtn));
+        root.setPadding(new Insets(12));
+        root.setPrefWidth(420);
+
+        Stage stage = new Stage();
+        stage.initOwner(owner);
+        stage.initModality(Modality.WINDOW_MODAL);
+        stage.setTitle(title + " in progress");
+        stage.setScene(new Scene(root));
+        // Closing the window means cancel; the job still finishes its current chunk
+        stage.setOnCloseRequest(e -> progress.cancel());
+
+        Timeline ticker = new Timeline(new KeyFrame(REFRESH_INTERVAL, e -> {
+            if (progress.isCancelled()) return;
+            long bytesTotal = progress.getBytesTotal();
+            long filesTotal = progress.getFilesTotal();
+            if (bytesTotal > 0) {
+                bar.setProgress((double) progress.getBytesDone() / bytesTotal);
+            } else if (filesTotal > 0) {
+                bar.setProgress((double) progress.getFilesDone() / filesTotal);
+            }
+            counts.setText(progress.getFilesDone() + " of " + filesTotal + " files, "
+                    + formatBytes(progress.getBytesDone()) + " of " + formatBytes(bytesTotal));
+            long eta = progress.getEtaSeconds();
+            rates.setText(formatBytes((long) progress.getBytesPerSecond()) + "/s, "
+                    + String.format(Locale.ROOT, "%.1f", progress.getFilesPerSecond()) + " files/s"
+                    + (eta < 0 ? "" : ", ETA " + formatDuration(eta)));
+        }));
+        ticker.setCycleCount(Timeline.INDEFINITE);
+
+        job.setOnSucceeded(e -> {
+            ticker.stop();
+            stage.close();
+            List<TransferResult> results = job.getValue();
+            if (progress.getBytesInPlace() > 0) {
+                System.out.println("[INFO] " + title + ": " + formatBytes(progress.getBytesInPlace()) + " of "
+                        + formatBytes(progress.getBytesDone()) + " were already in place and not rewritten");
+            }
+            showSummary(job.getKind(), results, progress);
+            onFinished.accept(results);
+        });
+        job.setOnFailed(e -> {
+            ticker.stop();
+            stage.close();
+            Throwable ex = job.getException();
+            Alert a = new Alert(Alert.AlertType.ERROR, ex == null ? "Unknown error" : String.valueOf(ex.getMessage()), ButtonType.OK);
+            a.setHeaderText(title + " failed");
+            a.showAndWait();
+            onFinished.accept(List.of());
+        });
+
+        Thread worker = new Thread(job, "transfer-" + job.getKind().name().toLowerCase(Locale.ROOT));
+        worker.setDaemon(true);
+        ticker.play();
+        stage.show();
+        worker.start();
+    }
+
+    private static void showSummary(TransferJob.Kind kind, List<TransferResult> results, TransferProgress progress) {
+        long done = results.stream().filter(r -> r.outcome() == TransferResult.Outcome.DONE).count();
+        long failed = results.stream().filter(r -> r.outcome() == TransferResult.Outcome.FAILED).count();
+        long cancelled = results.stream().filter(r -> r.outcome() == TransferResult.Outcome.CANCELLED).count();
+        if (failed == 0 && cancelled == 0) {
+            return;
+        }
+
+        StringBuilder details = new StringBuilder();
+        for (TransferResult r : results) {
+            switch (r.outcome()) {
+                case DONE -> details.append("✔ ");
+                case FAILED -> details.append("✖ ");
+                case CANCELLED -> details.append("– ");
+            }
+            details.append(r.source());
+            if (r.target() != null) details.append(" → ").append(r.target());
+            if (r.outcome() == TransferResult.Outcome.FAILED) details.append(": ").append(r.message());
+            if (r.outcome() == TransferResult.Outcome.CANCELLED) details.append(" (cancelled)");
+            details.append('\n');
+        }
+        TextArea area = new TextArea(details.toString());
+        area.setEditable(false);
+        area.setWrapText(false);
+        area.setPrefRowCount(Math.min(15, results.size() + 1));
+
+        Alert a = new Alert(Alert.AlertType.INFORMATION, null, ButtonType.OK);
+        a.setTitle(kind.getTitle() + " summary");
+        a.setHeaderText(done + " " + kind.getPastTense() + ", " + failed + " failed, " + cancelled + " cancelled ("
+                + formatBytes(progress.getBytesDone()) + " in " + formatDuration(Math.round(progress.getElapsedSeconds())) + ")");
+        a.getDialogPane().setContent(area);
+        a.setResizable(true);
+        a.showAndWait();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        String[] units = {"KB", "MB", "GB", "TB"};
+        double v = bytes;
+        int u = -1;
+        while (v >= 1024 && u < units.length - 1) {
+            v /= 1024;
+            u++;
+        }
+        return String.format(Locale.ROOT, "%.1f %s", v, units[u]);
+    }
+
+    static String formatDuration(long seconds) {
+        return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+}
@@ -0,0 +1,174 @@
+package net.parksy.foldercompare;
+
+import javafx.concurrent.Task;
+import net.parksy.foldercompare.fs.FileOperations;
+import net.parksy.foldercompare.fs.SyncPlanner;
+import net.parksy.foldercompare.fs.TransferProgress;
+import net.parksy.foldercompare.fs.TransferResult;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Background copy, move or delete of the selected items, or the run of a {@link SyncPlanner.Plan}.
+ * Cancellation is cooperative through {@link #getTransferProgress()}: the item in flight stops at the next
+ * chunk boundary and the remaining items are reported as cancelled, so the result always lists every item.
+ */
+public class TransferJob extends Task<List<TransferResult>> {
+
+    public enum Kind {
+        COPY("Copy", "copied"),
+        MOVE("Move", "moved"),
+        DELETE("Delete", "deleted"),
+        SYNC("Sync", "synchronized");
+
+        private final String title;
+        private final String pastTense;
+
+        Kind(String title, String pastTense) {
+            this.title = title;
+            this.pastTense = pastTense;
+        }
+
+        public String getTitle() { return title; }
+        public String getPastTense() { return pastTense; }
+    }
+
+    /**
+     * One selected entry. The target is null for deletions.
+     *
+     * @param localSource a file with the source's content already on the target's side (a renamed or moved
+     *                    file), copied from there instead of transferring the bytes again; may be null
+     */
+    public record Item(Path source, Path target, Path localSource) {
+        public Item(Path source, Path target) {
+            this(source, target, null);
+        }
+    }
+
+    private final Kind kind;
+    private final List<Item> items;
+    private final SyncPlanner.Plan plan;
+    private final ContentHashCache cache;
+    private final TransferProgress progress = new TransferProgress();
+
+    public TransferJob(Kind kind, List<Item> items) {
+        this(kind, items, null);
+    }
+
+    /**
+     * @param cache digests that vouch for an item's local source; without one local sources are not used
+     */
+    public TransferJob(Kind kind, List<Item> items, ContentHashCache cache) {
+        this.kind = kind;
+        this.items = List.copyOf(items);
+        this.plan = null;
+        this.cache = cache;
+    }
+
+    /**
+     * A job that carries out a sync plan as one batch.
+     */
+    public TransferJob(SyncPlanner.Plan plan) {
+        this.kind = Kind.SYNC;
+        this.items = List.of();
+        this.plan = plan;
+        this.cache = null;
+    }
+
+    public Kind getKind() { return kind; }
+
+    public TransferProgress getTransferProgress() { return progress; }
+
+    @Override
+    protected List<TransferResult> call() {
+        if (plan != null) {
+            return SyncPlanner.execute(plan, progress);
+        }
+        List<TransferResult> results = new ArrayList<>();
+        // Totals first, so throughput can be turned into an ETA
+        List<TransferProgress> itemTotals = new ArrayList<>();
+        try {
+            for (Item item : items) {
+                TransferProgress totals = new TransferProgress();
+                FileOperations.measure(item.source(), totals);
+                progress.addTotals(totals.getFilesTotal(), totals.getBytesTotal());
+                itemTotals.add(totals);
+            }
+        } catch (Exception ignored) {
+            // Cancelled or unreadable: continue without (complete) totals
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            Path src = item.source();
+            Path dst = item.target();
+            if (progress.isCancelled()) {
+                results.add(TransferResult.cancelled(src, dst));
+                continue;
+            }
+            try {
+                Path local = usableLocalSource(item);
+                switch (kind) {
+                    case COPY -> FileOperations.copyRecursive(local != null ? local : src, dst, progress);
+                    case MOVE -> {
+                        if (local != null) {
+                            // The source is deleted only because its cached digest, still valid, equals local's
+                            FileOperations.copyRecursive(local, dst, progress);
+                            Files.delete(src);
+                        } else {
+                            move(src, dst, i < itemTotals.size() ? itemTotals.get(i) : null);
+                        }
+                    }
+                    case DELETE -> FileOperations.deleteRecursive(src, progress);
+                }
+                results.add(TransferResult.done(src, dst));
+                System.out.println("[INFO] " + kind.getTitle() + ": " + src + (dst == null ? "" : " -> " + dst));
+            } catch (CancellationException ex) {
+                results.add(TransferResult.cancelled(src, dst));
+            } catch (Exception ex) {
+                results.add(TransferResult.failed(src, dst, ex.getMessage()));
+                System.out.println("[WARN] " + kind.getTitle() + " failed for '" + src + "': " + ex.getMessage());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The item's local source if both files still have the cached digests rename detection stored for them and
+     * those are equal, otherwise null. Either file may have been edited since, so a digest only counts while the
+     * file's size, modification time and file key are unchanged; on a miss the item is copied as usual.
+     */
+    private Path usableLocalSource(Item item) {
+        Path local = item.localSource();
+        if (local == null || cache == null) return null;
+        try {
+            BasicFileAttributes la = Files.readAttributes(local, BasicFileAttributes.class);
+            BasicFileAttributes sa = Files.readAttributes(item.source(), BasicFileAttributes.class);
+            if (!la.isRegularFile() || !sa.isRegularFile() || la.size() != sa.size()) return null;
+            byte[] ld = cache.lookup(local, la);
+            byte[] sd = ld == null ? null : cache.lookup(item.source(), sa);
+            return sd != null && MessageDigest.isEqual(ld, sd) ? local : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private void move(Path src, Path dst, TransferProgress totals) throws Exception {
+        long filesBefore = progress.getFilesDone();
+        long bytesBefore = progress.getBytesDone();
+        FileOperations.moveRecursive(src, dst, progress);
+        if (totals != null) {
+            // A directory renamed in one step reports nothing; count it as done
+            progress.addDone(Math.max(0, totals.getFilesTotal() - (progress.getFilesDone() - filesBefore)),
+                    Math.max(0, totals.getBytesTotal() - (progress.getBytesDone() - bytesBefore)));
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package net.parksy.foldercompare.cli;
+
+import net.parksy.foldercompare.Constants;
+import net.parksy.foldercompare.fs.ComparisonEngine;
+import net.parksy.foldercompare.fs.ComparisonStrategy;
+import net.parksy.foldercompare.fs.ComparisonTier;
+import net.parksy.foldercompare.fs.DirectoryDigests;
+import net.parksy.foldercompare.fs.EntryFilter;
+import net.parksy.foldercompare.fs.StreamingScanner;
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless comparison of one or more folder pairs, for scripts and scheduled jobs.
+ * Uses the same scanning, pairing and comparison code as the UI but never initializes JavaFX.
+ * Pairs are compared concurrently; the rows of each pair are written together, as JSON Lines or CSV.
+ */
+public final class CompareCli {
+    private CompareCli() {}
+
+    public static final int EXIT_SAME = 0;
+    public static final int EXIT_DIFFERENT = 1;
+    public static final int EXIT_ERROR = 2;
+
+    static final List<String> COLUMNS = List.of("pair", "left", "right", "path", "type", "status",
+            "leftSize", "rightSize", "leftModified", "rightModified");
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: folderCompare [options] <left> <right> [<left> <right> ...]",
+            "Compares folder pairs without opening a window and prints one line per entry.",
+            "",
+            "  -r, --recursive          compare whole trees instead of the top level",
+            "  -t, --tier <tier>        metadata | sampled | content (default: content)",
+            "  -f, --format <format>    jsonl | csv (default: jsonl)",
+            "  -p, --pairs <file>       read more pairs from a file, one 'left<TAB>right' per line",
+            "  -d, --only-differences   omit entries that are equal",
+            "  -x, --filter <rules>     skip entries while scanning, e.g. '-.git; -target/; -*.tmp; size<1G'",
+            "  -j, --threads <n>        folder pairs compared at the same time (default: number of cores)",
+            "      --no-cache           neither use nor update the content digest cache",
+            "  -h, --help               show this help",
+            "",
+            "Exit status: 0 if all pairs are equal, 1 if any difference was found, 2 on errors.");
+
+    record FolderPair(String left, String right) {}
+
+    record Options(List<FolderPair> pairs, boolean recursive, ComparisonTier tier, OutputFormat format,
+                   boolean onlyDifferences, int threads, boolean useCache, EntryFilter filter, boolean help) {
+
+        static Options parse(String[] args) throws IOException {
+            List<String> paths = new ArrayList<>();
+            List<FolderPair> pairs = new ArrayList<>();
+            boolean recursive = false;
+            ComparisonTier tier = ComparisonTier.CONTENT;
+            OutputFormat format = OutputFormat.JSONL;
+            boolean onlyDifferences = false;
+            int threads = Runtime.getRuntime().availableProcessors();
+            boolean useCache = true;
+            EntryFilter filter = EntryFilter.NONE;
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                switch (a) {
+                    case "-h", "--help" -> {
+                        return new Options(List.of(), false, tier, format, false, 1, false, EntryFilter.NONE, true);
+                    }
+                    case "-r", "--recursive" -> recursive = true;
+                    case "-d", "--only-differences" -> onlyDifferences = true;
+                    case "--no-cache" -> useCache = false;
+                    case "-t", "--tier" -> tier = parseEnum(ComparisonTier.class, value(args, ++i, a));
+                    case "-f", "--format" -> format = parseEnum(OutputFormat.class, value(args, ++i, a));
+                    case "-j", "--threads" -> {
+                        try {
+                            threads = Integer.parseInt(value(args, ++i, a));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("--threads needs a number");
+                        }
+                        if (threads < 1) throw new IllegalArgumentException("--threads must be at least 1");
+                    }
+                    case "-x", "--filter" -> filter = EntryFilter.parse(value(args, ++i, a));
+                    case "-p", "--pairs" -> pairs.addAll(readPairs(Path.of(value(args, ++i, a))));
+                    default -> {
+                        if (a.startsWith("-") && a.length() > 1) throw new IllegalArgumentException("unknown option " + a);
+                        paths.add(a);
+                    }
+                }
+            }
+            if (paths.size() % 2 != 0) throw new IllegalArgumentException("folders must be given in pairs");
+            for (int i = 0; i < paths.size(); i += 2) {
+                pairs.add(i / 2, new FolderPair(paths.get(i), paths.get(i + 1)));
+            }
+            if (pairs.isEmpty()) throw new IllegalArgumentException("no folder pair given");
+            return new Options(pairs, recursive, tier, format, onlyDifferences, threads, useCache, filter, false);
+        }
+
+        private static String value(String[] args, int i, String option) {
+            if (i >= args.length) throw new IllegalArgumentException(option + " needs a value");
+            return args[i];
+        }
+
+        private static <E extends Enum<E>> E parseEnum(Class<E> type, String text) {
+            try {
+                return Enum.valueOf(type, text.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("unknown value '" + text + "', expected one of "
+                        + Arrays.stream(type.getEnumConstants()).map(e -> e.name().toLowerCase(Locale.ROOT)).toList());
+            }
+        }
+
+        private static List<FolderPair> readPairs(Path file) throws IOException {
+            List<FolderPair> pairs = new ArrayList<>();
+            for (String line : Files.readAllLines(file)) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.split("\t");
+                if (parts.length != 2) throw new IllegalArgumentException("expected 'left<TAB>right' in " + file + ": " + line);
+                pairs.add(new FolderPair(parts[0].trim(), parts[1].trim()));
+            }
+            return pairs;
+        }
+    }
+
+    /**
+     * Runs the command line and returns the exit status; never calls {@link System#exit}.
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Options opts;
+        try {
+            opts = Options.parse(args);
+        } catch (IllegalArgumentException | IOException ex) {
+            err.println("folderCompare: " + ex.getMessage());
+            err.println(USAGE);
+            return EXIT_ERROR;
+        }
+        if (opts.help()) {
+            out.println(USAGE);
+            return EXIT_SAME;
+        }
+
+        ContentHashCache cache = opts.useCache()
+                ? ContentHashCache.load(ContentHashCache.defaultLocation(), Constants.HASH_CACHE_MAX_ENTRIES)
+                : null;
+        ComparisonStrategy strategy = opts.tier().strategy(cache);
+        // Digests of folders cannot account for size and age rules, so those folders are compared file by file
+        DirectoryDigests digests = opts.tier() == ComparisonTier.CONTENT && !opts.filter().hasAttributeRules()
+                ? new DirectoryDigests(cache) : null;
+        String header = opts.format().header();
+        if (header != null) out.println(header);
+
+        // Entries of all pairs are compared on one shared pool, sized for blocking I/O
+        ForkJoinPool comparePool = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(opts.threads(), opts.pairs().size()), r -> {
+            Thread t = new Thread(r, "cli-pair-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        int exit = EXIT_SAME;
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < opts.pairs().size(); i++) {
+                int index = i;
+                results.add(pool.submit(() -> comparePair(index, opts.pairs().get(index), opts, strategy, digests, comparePool, out, err)));
+            }
+            for (Future<Integer> f : results) {
+                try {
+                    exit = Math.max(exit, f.get());
+                } catch (ExecutionException ex) {
+                    err.println("folderCompare: " + ex.getCause());
+                    exit = EXIT_ERROR;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            exit = EXIT_ERROR;
+        } finally {
+            pool.shutdownNow();
+            comparePool.shutdownNow();
+        }
+
+        if (cache != null) {
+            try {
+                cache.save(ContentHashCache.defaultLocation());
+            } catch (IOException ex) {
+                err.println("[WARN] Failed to save hash cache: " + ex.getMessage());
+            }
+        }
+        return exit;
+    }
+
+    private static int comparePair(int index, FolderPair pair, Options opts, ComparisonStrategy strategy,
+                                   DirectoryDigests digests, ForkJoinPool comparePool, PrintStream out, PrintStream err) {
+        Path leftRoot = Path.of(pair.left());
+        Path rightRoot = Path.of(pair.right());
+        for (Path p : List.of(leftRoot, rightRoot)) {
+            if (!Files.isDirectory(p)) {
+                err.println("folderCompare: not a folder: " + p);
+                return EXIT_ERROR;
+            }
+        }
+
+        List<PairedEntry> rows = new ArrayList<>();
+        StreamingScanner.scan(pair.left(), pair.right(), opts.recursive(), opts.filter(),
+                Constants.SCAN_BATCH_SIZE, rows::addAll, () -> false);
+        boolean recursive = opts.recursive();
+        EntryFilter filter = opts.filter();
+        String[] status = comparePool.submit(() -> rows.parallelStream()
+                .map(pe -> status(pe, leftRoot, rightRoot, recursive, strategy, digests, filter))
+                .toArray(String[]::new)).join();
+        if (recursive) {
+            resolveDirectories(rows, status);
+        }
+
+        List<String> lines = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            boolean equal = CompareStatus.EQUAL.name().equals(status[i]);
+            if (equal && opts.onlyDifferences()) continue;
+            lines.add(opts.format().line(COLUMNS, values(index, pair, rows.get(i), status[i])));
+        }
+        synchronized (out) {
+            lines.forEach(out::println);
+            out.flush();
+        }
+        return exitStatus(status);
+    }
+
+    /**
+     * {@link #EXIT_ERROR} if any entry could not be compared, else {@link #EXIT_DIFFERENT} if any entry is not equal.
+     */
+    static int exitStatus(String[] status) {
+        int exit = EXIT_SAME;
+        for (String s : status) {
+            if (CompareStatus.ERROR.name().equals(s)) return EXIT_ERROR;
+            if (!CompareStatus.EQUAL.name().equals(s)) exit = EXIT_DIFFERENT;
+        }
+        return exit;
+    }
+
+    /**
+     * LEFT_ONLY / RIGHT_ONLY for orphans, else the comparison status. In recursive mode directories present
+     * on both sides are left null here and derived from their descendants.
+     */
+    private static String status(PairedEntry pe, Path leftRoot, Path rightRoot, boolean recursive,
+                                 ComparisonStrategy strategy, DirectoryDigests digests, EntryFilter filter) {
+        if (pe.isOrphanLeft()) return "LEFT_ONLY";
+        if (pe.isOrphanRight()) return "RIGHT_ONLY";
+        FileInfo l = pe.getLeft();
+        FileInfo r = pe.getRight();
+        if (recursive && l.isDirectory() && r.isDirectory()) return null;
+        // Each nested entry has its own row, so a folder never needs its immediate files re-read here
+        return ComparisonEngine.compare(pe, leftRoot, rightRoot, false, strategy, digests, filter).name();
+    }
+
+    /**
+     * A folder present on both sides is equal exactly when every entry below it is.
+     */
+    private static void resolveDirectories(List<PairedEntry> rows, String[] status) {
+        Set<String> differing = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (status[i] == null || CompareStatus.EQUAL.name().equals(status[i])) continue;
+            String name = key(rows.get(i));
+            for (int sep = name.lastIndexOf(File.separatorChar); sep > 0; sep = name.lastIndexOf(File.separatorChar, sep - 1)) {
+                if (!differing.add(name.substring(0, sep))) break;
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            if (status[i] == null) {
+                status[i] = differing.contains(key(rows.get(i))) ? CompareStatus.DIFFERENT.name() : CompareStatus.EQUAL.name();
+            }
+        }
+    }
+
+    private static String key(PairedEntry pe) {
+        FileInfo fi = pe.hasLeft() ? pe.getLeft() : pe.getRight();
+        return fi.getName().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<Object> values(int index, FolderPair pair, PairedEntry pe, String status) {
+        FileInfo l = pe.getLeft();
+        FileInfo r = pe.getRight();
+        FileInfo any = l != null ? l : r;
+        return Arrays.asList(index, pair.left(), pair.right(), any.getName(), any.isDirectory() ? "dir" : "file", status,
+                l == null || l.isDirectory() ? null : l.getSize(),
+                r == null || r.isDirectory() ? null : r.getSize(),
+                l == null || l.getModified() == null ? null : l.getModified().toString(),
+                r == null || r.getModified() == null ? null : r.getModified().toString());
+    }
+}
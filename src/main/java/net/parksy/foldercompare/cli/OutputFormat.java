@@ -0,0 +1,77 @@
+package net.parksy.foldercompare.cli;
+
+import java.util.List;
+
+/**
+ * Machine-readable row formats of the command-line mode. Both write one line per compared entry.
+ */
+public enum OutputFormat {
+    /** One JSON object per line. */
+    JSONL {
+        @Override
+        String header() {
+            return null;
+        }
+
+        @Override
+        String line(List<String> names, List<Object> values) {
+            StringBuilder sb = new StringBuilder(128).append('{');
+            for (int i = 0; i < names.size(); i++) {
+                Object v = values.get(i);
+                if (v == null) continue;
+                if (sb.length() > 1) sb.append(',');
+                sb.append('"').append(names.get(i)).append("\":");
+                if (v instanceof Number) sb.append(v); else appendJsonString(sb, v.toString());
+            }
+            return sb.append('}').toString();
+        }
+    },
+    /** Comma-separated values with a header line (RFC 4180 quoting). */
+    CSV {
+        @Override
+        String header() {
+            return String.join(",", CompareCli.COLUMNS);
+        }
+
+        @Override
+        String line(List<String> names, List<Object> values) {
+            StringBuilder sb = new StringBuilder(128);
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) sb.append(',');
+                Object v = values.get(i);
+                if (v == null) continue;
+                String s = v.toString();
+                if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+                    sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+                } else {
+                    sb.append(s);
+                }
+            }
+            return sb.toString();
+        }
+    };
+
+    /** The first line of the output, or null if the format has none. */
+    abstract String header();
+
+    /** Formats one row; null values are omitted (JSONL) or left empty (CSV). */
+    abstract String line(List<String> names, List<Object> values);
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c)); else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,64 @@
+package net.parksy.foldercompare.fs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Collects items produced on worker threads and hands them to a consumer in batches
+ * on a target executor (typically Platform::runLater). At most one drain is scheduled
+ * at a time, so a burst of results costs a single hop to the target thread.
+ */
+public final class BatchCoalescer<T> {
+    private final Executor target;
+    private final Consumer<List<T>> sink;
+    private final Queue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public BatchCoalescer(Executor target, Consumer<List<T>> sink) {
+        this.target = target;
+        this.sink = sink;
+    }
+
+    public void offer(T item) {
+        pending.add(item);
+        schedule();
+    }
+
+    public void offerAll(Collection<? extends T> batch) {
+        if (batch.isEmpty()) return;
+        pending.addAll(batch);
+        schedule();
+    }
+
+    /**
+     * Drops everything queued but not yet delivered.
+     */
+    public void clear() {
+        pending.clear();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            target.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        // Reset before polling so items offered during the drain schedule another pass
+        scheduled.set(false);
+        List<T> batch = new ArrayList<>();
+        T item;
+        while ((item = pending.poll()) != null) {
+            batch.add(item);
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking file system calls concurrently, with at most a fixed number in flight per file store.
+ * Many outstanding stat and read calls hide the round-trip latency of network mounts, while the cap
+ * keeps one comparison from flooding the server.
+ * <p>
+ * Work runs on virtual threads when the runtime has them (Java 21+), otherwise on a bounded pool of
+ * platform threads. The cap is {@link Constants#IO_CONCURRENCY_PER_STORE}; it can be set per file store
+ * type with {@code -Dfoldercompare.ioConcurrency.<type>=n} (e.g. {@code nfs}, {@code cifs}, {@code smbfs}).
+ */
+public final class BoundedIo {
+    private BoundedIo() {}
+
+    /** Whether {@link #newExecutor} creates virtual threads. */
+    public static final boolean VIRTUAL_THREADS = virtualThreadFactory("probe") != null;
+
+    private static final ExecutorService SHARED = newExecutor("io-worker", Constants.IO_PLATFORM_THREADS);
+
+    // Roots are few; the permits are shared by every root on the same store
+    private static final Map<Path, StorePermits> ROOT_PERMITS = new ConcurrentHashMap<>();
+    private static final Map<Object, StorePermits> STORE_PERMITS = new ConcurrentHashMap<>();
+    private static final AtomicInteger STORE_COUNT = new AtomicInteger();
+
+    /** A store's permits, numbered so tasks needing two stores always take them in the same order. */
+    private record StorePermits(Semaphore semaphore, int order) {}
+
+    /**
+     * Creates an executor for blocking I/O: one virtual thread per task if available, otherwise
+     * {@code platformThreads} daemon threads named {@code name-N}.
+     */
+    public static ExecutorService newExecutor(String name, int platformThreads) {
+        ThreadFactory virtual = virtualThreadFactory(name);
+        if (virtual != null) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, virtual);
+            } catch (ReflectiveOperationException ex) {
+                // fall through to platform threads
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Permits for the file store holding {@code root}. Paths whose store cannot be determined share one set.
+     */
+    public static Semaphore permits(Path root) {
+        return storePermits(root).semaphore();
+    }
+
+    private static StorePermits storePermits(Path root) {
+        return ROOT_PERMITS.computeIfAbsent(root.toAbsolutePath().normalize(), p -> {
+            Object key;
+            String type = "";
+            try {
+                FileStore store = Files.getFileStore(p);
+                key = store;
+                type = store.type();
+            } catch (IOException | SecurityException ex) {
+                key = "unknown";
+            }
+            String storeType = type;
+            return STORE_PERMITS.computeIfAbsent(key, k -> new StorePermits(
+                    new Semaphore(Integer.getInteger("foldercompare.ioConcurrency." + storeType, Constants.IO_CONCURRENCY_PER_STORE)),
+                    STORE_COUNT.incrementAndGet()));
+        });
+    }
+
+    /**
+     * Starts {@code fn} for every input on the shared I/O threads. The caller blocks while the store of
+     * {@code root} has its cap in flight, so a long input list never queues unbounded work.
+     *
+     * @return futures in input order
+     */
+    public static <T, R> List<CompletableFuture<R>> submitAll(Path root, List<T> inputs, Function<? super T, ? extends R> fn) {
+        Semaphore permits = permits(root);
+        List<CompletableFuture<R>> futures = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            permits.acquireUninterruptibly();
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return fn.apply(input);
+                    } finally {
+                        permits.release();
+                    }
+                }, SHARED));
+            } catch (RuntimeException ex) {
+                permits.release();
+                throw ex;
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Applies {@code fn} to every input concurrently (see {@link #submitAll}) and returns the results in input order.
+     */
+    public static <T, R> List<R> mapAll(Path root, List<T> inputs, Function<? super T, ? extends R> fn) {
+        return joinAll(submitAll(root, inputs, fn));
+    }
+
+    public static <R> List<R> joinAll(List<CompletableFuture<R>> futures) {
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> f : futures) {
+            results.add(f.join());
+        }
+        return results;
+    }
+
+    /**
+     * Runs {@code work} on the calling thread once it holds a permit of both stores; for a task that
+     * reads from two roots, such as comparing a pair. Permits are taken in a fixed order.
+     */
+    public static <R> R call(Path leftRoot, Path rightRoot, Supplier<R> work) throws InterruptedException {
+        StorePermits a = storePermits(leftRoot);
+        StorePermits b = storePermits(rightRoot);
+        if (a == b) {
+            b = null;
+        } else if (a.order() > b.order()) {
+            StorePermits t = a;
+            a = b;
+            b = t;
+        }
+        a.semaphore().acquire();
+        try {
+            if (b != null) b.semaphore().acquire();
+            try {
+                return work.get();
+            } finally {
+                if (b != null) b.semaphore().release();
+            }
+        } finally {
+            a.semaphore().release();
+        }
+    }
+
+    // Thread.ofVirtual().name(name + "-", 1).factory(), looked up reflectively to keep running on Java 17
+    private static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package net.parksy.foldercompare.fs;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes large trees quickly. The tree is walked once, reusing the attributes the walk already read,
+ * so no entry is stat'ed twice. Files are then removed in parallel batches (one or more per directory)
+ * and the directories bottom-up once they are empty. Symbolic links are removed, never followed.
+ * <p>
+ * Failures do not stop the deletion: everything that can be removed is, and the entries that could
+ * not be are reported in the {@link Result}. Directories that still hold such an entry are kept.
+ */
+public final class BulkDeleter {
+    private BulkDeleter() {}
+
+    /** Files removed by one task; large directories are split so they spread over the pool. */
+    static final int BATCH_SIZE = 256;
+
+    /**
+     * @param failures entries that could not be deleted, sorted by path
+     */
+    public record Result(long filesDeleted, long directoriesDeleted, Map<Path, IOException> failures) {
+        public boolean isComplete() { return failures.isEmpty(); }
+    }
+
+    private record Entry(Path path, long size) {}
+
+    /**
+     * Deletes {@code root} and, if it is a directory, everything below it. A missing root is not an error.
+     * Deleted files are counted in the progress, with their size as bytes.
+     *
+     * @throws java.util.concurrent.CancellationException if the progress was cancelled; entries deleted so far stay deleted
+     */
+    public static Result delete(Path root, TransferProgress progress) {
+        progress.checkCancelled();
+        Map<Path, IOException> failures = new ConcurrentSkipListMap<>();
+        List<List<Entry>> batches = new ArrayList<>();
+        List<Path> directories = new ArrayList<>(); // post-order: children before parents
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                private final List<List<Entry>> open = new ArrayList<>();
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    progress.checkCancelled();
+                    open.add(new ArrayList<>());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (open.isEmpty()) {
+                        // root itself is a file or a link
+                        batches.add(List.of(new Entry(file, attrs.isRegularFile() ? attrs.size() : 0)));
+                        return FileVisitResult.CONTINUE;
+                    }
+                    List<Entry> current = open.get(open.size() - 1);
+                    current.add(new Entry(file, attrs.isRegularFile() ? attrs.size() : 0));
+                    if (current.size() == BATCH_SIZE) {
+                        batches.add(current);
+                        open.set(open.size() - 1, new ArrayList<>());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    if (!(exc instanceof NoSuchFileException)) failures.put(file, exc);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    List<Entry> current = open.remove(open.size() - 1);
+                    if (!current.isEmpty()) batches.add(current);
+                    if (exc != null) failures.put(dir, exc);
+                    directories.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            failures.put(root, ex);
+        }
+
+        AtomicLong files = new AtomicLong();
+        DirectoryScanner.POOL.submit(() -> batches.parallelStream().forEach(batch -> {
+            for (Entry e : batch) {
+                progress.checkCancelled();
+                try {
+                    Files.deleteIfExists(e.path());
+                    files.incrementAndGet();
+                    progress.addDone(1, e.size());
+                } catch (IOException ex) {
+                    failures.put(e.path(), ex);
+                }
+            }
+        })).join();
+
+        // A directory that still holds a failed entry, or could not be walked itself, cannot go; the
+        // original failure is the one worth reporting
+        Set<Path> blocked = new HashSet<>();
+        failures.keySet().forEach(p -> {
+            blocked.add(p);
+            blocked.add(p.getParent());
+        });
+        long dirs = 0;
+        for (Path dir : directories) {
+            progress.checkCancelled();
+            if (blocked.contains(dir)) {
+                blocked.add(dir.getParent());
+                continue;
+            }
+            try {
+                Files.deleteIfExists(dir);
+                dirs++;
+            } catch (IOException ex) {
+                failures.putIfAbsent(dir, ex);
+                blocked.add(dir.getParent());
+            }
+        }
+        return new Result(files.get(), dirs, failures);
+    }
+}
@@ -0,0 +1,29 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+
+/**
+ * Decides from previously cached digests only, without touching file contents.
+ * Defers when either side has no valid cached digest.
+ */
+public final class CachedDigestComparison implements ComparisonStrategy {
+    private final ContentHashCache cache;
+
+    public CachedDigestComparison(ContentHashCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public CompareStatus compareFiles(Path a, BasicFileAttributes aa, Path b, BasicFileAttributes ab) {
+        if (cache == null) return CompareStatus.PENDING;
+        byte[] da = cache.lookup(a, aa);
+        byte[] db = da == null ? null : cache.lookup(b, ab);
+        if (da == null || db == null) return CompareStatus.PENDING;
+        return MessageDigest.isEqual(da, db) ? CompareStatus.EQUAL : CompareStatus.DIFFERENT;
+    }
+}
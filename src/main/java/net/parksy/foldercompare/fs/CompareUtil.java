@@ -1,12 +1,29 @@
 package net.parksy.foldercompare.fs;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import net.parksy.foldercompare.Constants;
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.model.ScanSnapshot;
+import net.parksy.foldercompare.prefs.ContentHashCache;
 
 /**
  * Utilities for efficient file/directory comparisons.
@@ -15,7 +32,7 @@ public final class CompareUtil {
     private CompareUtil() {}
 
     /**
-     * Efficiently compare file contents using size pre-check and Files.mismatch.
+     * Efficiently compare file contents using size pre-check and {@link #mismatch(Path, Path)}.
      */
     public static boolean filesEqual(Path a, Path b) {
         try {
@@ -23,8 +40,88 @@ public final class CompareUtil {
             long sa = Files.size(a);
             long sb = Files.size(b);
             if (sa != sb) return false;
-            return Files.mismatch(a, b) == -1L;
-        } catch (IOException e) {
+            return mismatch(a, b) == -1L;
+        } catch (IOException | UncheckedIOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the offset of the first differing byte, or -1 if both files have identical content
+     * (same semantics as {@link Files#mismatch}). Files of at least {@link Constants#LARGE_FILE_THRESHOLD}
+     * bytes are compared through memory-mapped regions in parallel.
+     */
+    public static long mismatch(Path a, Path b) throws IOException {
+        return mismatch(a, b, Constants.LARGE_FILE_THRESHOLD);
+    }
+
+    /**
+     * Like {@link #mismatch(Path, Path)} with an explicit size at which the mapped strategy kicks in.
+     */
+    public static long mismatch(Path a, Path b, long largeFileThreshold) throws IOException {
+        long sa = Files.size(a);
+        long sb = Files.size(b);
+        if (Math.min(sa, sb) < largeFileThreshold) {
+            return Files.mismatch(a, b);
+        }
+        return mappedMismatch(a, b, Constants.MAPPED_REGION_SIZE);
+    }
+
+    /**
+     * Maps both files region by region and compares the regions in parallel. Regions that start
+     * after an already found difference are skipped, so a mismatch near the start ends the work early.
+     */
+    static long mappedMismatch(Path a, Path b, int regionSize) throws IOException {
+        try (FileChannel ca = FileChannel.open(a, StandardOpenOption.READ);
+             FileChannel cb = FileChannel.open(b, StandardOpenOption.READ)) {
+            long sa = ca.size();
+            long sb = cb.size();
+            long common = Math.min(sa, sb);
+            long regions = (common + regionSize - 1) / regionSize;
+            AtomicLong first = new AtomicLong(Long.MAX_VALUE);
+            DirectoryScanner.POOL.submit(() -> LongStream.range(0, regions).parallel().forEach(i -> {
+                long start = i * regionSize;
+                if (start >= first.get()) return;
+                long len = Math.min(regionSize, common - start);
+                try {
+                    MappedByteBuffer ma = ca.map(FileChannel.MapMode.READ_ONLY, start, len);
+                    MappedByteBuffer mb = cb.map(FileChannel.MapMode.READ_ONLY, start, len);
+                    int m = ma.mismatch(mb);
+                    if (m >= 0) {
+                        first.accumulateAndGet(start + m, Math::min);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).join();
+            long found = first.get();
+            if (found != Long.MAX_VALUE) return found;
+            return sa == sb ? -1L : common;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Compares file contents through a digest cache: files whose size, mtime and file key are
+     * unchanged since they were last hashed are not read again. Falls back to
+     * {@link #filesEqual(Path, Path)} when no cache is given.
+     */
+    public static boolean filesEqual(Path a, Path b, ContentHashCache cache) {
+        if (cache == null) return filesEqual(a, b);
+        return filesEqual(a, b, new ContentComparison(cache));
+    }
+
+    /**
+     * Compares two regular files with the given strategy. Only a decisive EQUAL counts as equal.
+     */
+    public static boolean filesEqual(Path a, Path b, ComparisonStrategy strategy) {
+        try {
+            BasicFileAttributes aa = Files.readAttributes(a, BasicFileAttributes.class);
+            BasicFileAttributes ab = Files.readAttributes(b, BasicFileAttributes.class);
+            if (!(aa.isRegularFile() && ab.isRegularFile())) return false;
+            return strategy.compareFiles(a, aa, b, ab) == CompareStatus.EQUAL;
+        } catch (IOException | UncheckedIOException e) {
             return false;
         }
     }
@@ -38,22 +135,40 @@ public final class CompareUtil {
      * - Any corresponding file by name has different content per filesEqual
      */
     public static boolean directoriesEqual(Path a, Path b) {
+        return directoriesEqual(a, b, new ContentComparison(null));
+    }
+
+    /**
+     * Same as {@link #directoriesEqual(Path, Path)}, comparing files with the given strategy.
+     */
+    public static boolean directoriesEqual(Path a, Path b, ComparisonStrategy strategy) {
+        return directoriesEqual(a, b, strategy, EntryFilter.NONE);
+    }
+
+    /**
+     * Same as {@link #directoriesEqual(Path, Path, ComparisonStrategy)}, considering only the files the filter
+     * accepts (scoped to the folder, see {@link EntryFilter#under}). A file failing the size or age rules on
+     * both sides is ignored, as its row would be.
+     */
+    public static boolean directoriesEqual(Path a, Path b, ComparisonStrategy strategy, EntryFilter filter) {
         try {
             if (!(Files.isDirectory(a) && Files.isDirectory(b))) return false;
 
             // Collect regular files only (non-recursive)
-            Set<String> namesA;
-            Set<String> namesB;
-            try (var s = Files.list(a)) {
-                namesA = s.filter(Files::isRegularFile)
-                          .map(p -> p.getFileName().toString())
-                          .collect(Collectors.toCollection(TreeSet::new));
-            }
-            try (var s = Files.list(b)) {
-                namesB = s.filter(Files::isRegularFile)
-                          .map(p -> p.getFileName().toString())
-                          .collect(Collectors.toCollection(TreeSet::new));
+            Map<String, BasicFileAttributes> filesA = regularFiles(a, filter);
+            Map<String, BasicFileAttributes> filesB = regularFiles(b, filter);
+            if (filter.hasAttributeRules()) {
+                Set<String> ignored = new HashSet<>();
+                for (Map<String, BasicFileAttributes> side : List.of(filesA, filesB)) {
+                    for (String name : side.keySet()) {
+                        if (!passes(filter, filesA.get(name)) && !passes(filter, filesB.get(name))) ignored.add(name);
+                    }
+                }
+                filesA.keySet().removeAll(ignored);
+                filesB.keySet().removeAll(ignored);
             }
+            Set<String> namesA = filesA.keySet();
+            Set<String> namesB = filesB.keySet();
 
             if (namesA.size() != namesB.size()) return false;
             if (!namesA.equals(namesB)) return false;
@@ -62,11 +177,96 @@ public final class CompareUtil {
             for (String name : namesA) {
                 Path pa = a.resolve(name);
                 Path pb = b.resolve(name);
-                if (!filesEqual(pa, pb)) return false;
+                if (!filesEqual(pa, pb, strategy)) return false;
             }
             return true;
         } catch (IOException e) {
             return false;
         }
     }
+
+    /**
+     * Regular files of a folder by name (case-sensitive), leaving out names the filter rejects before reading
+     * their attributes.
+     */
+    private static Map<String, BasicFileAttributes> regularFiles(Path dir, EntryFilter filter) throws IOException {
+        Map<String, BasicFileAttributes> files = new TreeMap<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                if (filter.skipsName(name)) continue;
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                } catch (IOException ex) {
+                    continue;
+                }
+                if (attrs.isRegularFile() && filter.accepts(name, false)) files.put(name, attrs);
+            }
+        }
+        return files;
+    }
+
+    private static boolean passes(EntryFilter filter, BasicFileAttributes attrs) {
+        return attrs != null && filter.acceptsAttributes(false, attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Recursive directory comparison. Both trees are scanned concurrently; they are equal when
+     * they contain the same relative paths (case-sensitive) with the same types and file sizes,
+     * and every pair of files has identical content. File contents are compared in parallel.
+     */
+    public static boolean treesEqual(Path a, Path b) {
+        return treesEqual(a, b, new ContentComparison(null));
+    }
+
+    /**
+     * Same as {@link #treesEqual(Path, Path)}, comparing files with the given strategy.
+     */
+    public static boolean treesEqual(Path a, Path b, ComparisonStrategy strategy) {
+        return treesEqual(a, b, strategy, EntryFilter.NONE);
+    }
+
+    /**
+     * Same as {@link #treesEqual(Path, Path, ComparisonStrategy)}, considering only what the filter accepts
+     * (scoped to the folder, see {@link EntryFilter#under}); excluded folders are not walked.
+     */
+    public static boolean treesEqual(Path a, Path b, ComparisonStrategy strategy, EntryFilter filter) {
+        if (!(Files.isDirectory(a) && Files.isDirectory(b))) return false;
+        ForkJoinTask<ScanSnapshot> ta = DirectoryScanner.snapshotTreeAsync(a.toString(), filter);
+        ForkJoinTask<ScanSnapshot> tb = DirectoryScanner.snapshotTreeAsync(b.toString(), filter);
+        ScanSnapshot treeA = ta.join();
+        ScanSnapshot treeB = tb.join();
+
+        List<String> files = new ArrayList<>();
+        if (filter.hasAttributeRules()) {
+            // Entries failing the size or age rules on both sides drop out, so pair them by name first
+            boolean aligned = EntryPairer.merge(treeA, treeB, (i, j) -> {
+                boolean keepA = i >= 0 && filter.acceptsAttributes(treeA.isDirectory(i), treeA.fileSize(i), treeA.modifiedNanos(i));
+                boolean keepB = j >= 0 && filter.acceptsAttributes(treeB.isDirectory(j), treeB.fileSize(j), treeB.modifiedNanos(j));
+                if (!keepA && !keepB) return true;
+                if (i < 0 || j < 0 || !treeA.nameEquals(i, treeB, j) || treeA.isDirectory(i) != treeB.isDirectory(j)) return false;
+                if (!treeA.isDirectory(i)) {
+                    if (treeA.fileSize(i) != treeB.fileSize(j)) return false;
+                    files.add(treeA.name(i));
+                }
+                return true;
+            });
+            if (!aligned) return false;
+        } else {
+            if (treeA.count() != treeB.count()) return false;
+
+            // Both scans are in the same order, so matching trees line up entry by entry
+            for (int i = 0; i < treeA.count(); i++) {
+                if (!treeA.nameEquals(i, treeB, i)) return false;
+                if (treeA.isDirectory(i) != treeB.isDirectory(i)) return false;
+                if (!treeA.isDirectory(i)) {
+                    if (treeA.fileSize(i) != treeB.fileSize(i)) return false;
+                    files.add(treeA.name(i));
+                }
+            }
+        }
+        return DirectoryScanner.POOL.submit(() -> files.parallelStream()
+                .allMatch(name -> filesEqual(a.resolve(name), b.resolve(name), strategy))).join();
+    }
 }
@@ -0,0 +1,267 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes the content comparison status of paired entries on worker threads.
+ * Workers are virtual threads where available; either way each comparison holds an I/O permit of both
+ * folders' file stores (see {@link BoundedIo}), so a network share sees a bounded number of requests.
+ * Each entry is compared once per submission; results are published back in batches
+ * on the UI executor, so table cells only ever read the cached {@link CompareStatus}.
+ * <p>
+ * In recursive mode folders present on both sides are not read at all: every entry below them has a row of
+ * its own, so their status follows from those rows (see {@link #resolveFolders}) once the engine is idle.
+ */
+public final class ComparisonEngine implements AutoCloseable {
+    private final ExecutorService workers;
+    private final BatchCoalescer<Result> publisher;
+    private final AtomicLong generation = new AtomicLong();
+    private final Executor uiExecutor;
+    private final AtomicInteger outstanding = new AtomicInteger(); // results of the current generation not yet applied
+    private volatile Runnable onIdle;
+    private final ContentHashCache hashCache;
+    private volatile boolean recursive;
+    private volatile ComparisonStrategy strategy;
+    private final DirectoryDigests directoryDigests;
+    private volatile boolean digestFolders = true;
+    private volatile EntryFilter filter = EntryFilter.NONE;
+
+    private record Result(long generation, PairedEntry entry, CompareStatus status) {}
+
+    /**
+     * @param uiExecutor executor that runs on the thread owning the entries (e.g. Platform::runLater)
+     */
+    public ComparisonEngine(Executor uiExecutor) {
+        this(uiExecutor, null);
+    }
+
+    public ComparisonEngine(Executor uiExecutor, ContentHashCache hashCache) {
+        this(uiExecutor, Math.max(Runtime.getRuntime().availableProcessors(), Constants.IO_CONCURRENCY_PER_STORE), hashCache);
+    }
+
+    public ComparisonEngine(Executor uiExecutor, int threads) {
+        this(uiExecutor, threads, null);
+    }
+
+    /**
+     * @param threads   worker threads when the runtime has no virtual threads
+     * @param hashCache digest cache consulted by the full content tier, or null to always read both files
+     */
+    public ComparisonEngine(Executor uiExecutor, int threads, ContentHashCache hashCache) {
+        this.hashCache = hashCache;
+        this.strategy = ComparisonTier.CONTENT.strategy(hashCache);
+        this.directoryDigests = new DirectoryDigests(hashCache);
+        this.uiExecutor = uiExecutor;
+        this.workers = BoundedIo.newExecutor("compare-worker", threads);
+        this.publisher = new BatchCoalescer<>(uiExecutor, this::apply);
+    }
+
+    /**
+     * In recursive mode directory rows present on both sides are left to {@link #resolveFolders}
+     * instead of being compared. Applies to entries submitted after the call.
+     */
+    public void setRecursive(boolean recursive) {
+        this.recursive = recursive;
+    }
+
+    /**
+     * Selects how thoroughly files are compared. Applies to entries submitted after the call.
+     */
+    public void setTier(ComparisonTier tier) {
+        this.strategy = tier.strategy(hashCache);
+        // Folder digests hash every file, so they only stand in for the full content tier
+        this.digestFolders = tier == ComparisonTier.CONTENT;
+    }
+
+    /**
+     * Compares folders over the entries the filter accepts only. Applies to entries submitted after the call.
+     */
+    public void setFilter(EntryFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Runs on the UI executor whenever every result submitted so far has been applied.
+     */
+    public void setOnIdle(Runnable onIdle) {
+        this.onIdle = onIdle;
+    }
+
+    /**
+     * Queues the given entries for comparison against the given roots. Entries whose
+     * status can be decided without I/O (orphans, file vs directory) are resolved immediately.
+     */
+    public void submit(Collection<PairedEntry> entries, Path leftRoot, Path rightRoot) {
+        long gen = generation.get();
+        boolean deep = recursive;
+        ComparisonStrategy files = strategy;
+        EntryFilter rules = filter;
+        // Digests are kept per side, so they cannot apply size and age rules, which decide per row
+        DirectoryDigests digests = digestFolders && !rules.hasAttributeRules() ? directoryDigests : null;
+        int queued = 0;
+        for (PairedEntry pe : entries) {
+            FileInfo l = pe.getLeft();
+            FileInfo r = pe.getRight();
+            if (deep && l != null && r != null && l.isDirectory() && r.isDirectory()) {
+                continue; // derived from the rows below it
+            }
+            queued++;
+            outstanding.incrementAndGet();
+            if (l == null || r == null || l.isDirectory() != r.isDirectory()) {
+                publisher.offer(new Result(gen, pe, CompareStatus.DIFFERENT));
+                continue;
+            }
+            workers.execute(() -> {
+                if (generation.get() != gen) return; // superseded by a newer refresh
+                try {
+                    CompareStatus status = BoundedIo.call(leftRoot, rightRoot, () ->
+                            generation.get() != gen ? null : compare(pe, leftRoot, rightRoot, deep, files, digests, rules));
+                    if (status != null) publisher.offer(new Result(gen, pe, status));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt(); // engine closed
+                }
+            });
+        }
+        if (queued == 0) {
+            uiExecutor.execute(() -> {
+                if (generation.get() == gen) fireIfIdle();
+            });
+        }
+    }
+
+    /**
+     * Discards all queued and in-flight work; their results will not be published.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        outstanding.set(0);
+        publisher.clear();
+    }
+
+    /**
+     * Sets each folder row present on both sides from the rows below it: EQUAL when every one of them is
+     * equal, DIFFERENT as soon as one is not, and PENDING while any is still pending. Runs on the thread
+     * owning the rows; rows are in recursive scan order with relative paths as names.
+     */
+    public static void resolveFolders(List<PairedEntry> rows) {
+        Set<String> differing = new HashSet<>();
+        Set<String> pending = new HashSet<>();
+        for (PairedEntry pe : rows) {
+            if (isFolderPair(pe)) continue;
+            CompareStatus status = pe.getStatus();
+            if (status == CompareStatus.EQUAL) continue;
+            Set<String> marks = status == CompareStatus.PENDING ? pending : differing;
+            String name = key(pe);
+            for (int sep = name.lastIndexOf(File.separatorChar); sep > 0; sep = name.lastIndexOf(File.separatorChar, sep - 1)) {
+                if (!marks.add(name.substring(0, sep))) break;
+            }
+        }
+        for (PairedEntry pe : rows) {
+            if (!isFolderPair(pe)) continue;
+            String name = key(pe);
+            CompareStatus status = differing.contains(name) ? CompareStatus.DIFFERENT
+                    : pending.contains(name) ? CompareStatus.PENDING : CompareStatus.EQUAL;
+            if (pe.getStatus() != status) pe.setStatus(status);
+        }
+    }
+
+    private static boolean isFolderPair(PairedEntry pe) {
+        return pe.hasLeft() && pe.hasRight() && pe.getLeft().isDirectory() && pe.getRight().isDirectory();
+    }
+
+    private static String key(PairedEntry pe) {
+        return (pe.hasLeft() ? pe.getLeft() : pe.getRight()).getName().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Compares both sides of an entry synchronously on the calling thread.
+     */
+    public static CompareStatus compare(PairedEntry pe, Path leftRoot, Path rightRoot, boolean recursive,
+                                        ComparisonStrategy strategy) {
+        return compare(pe, leftRoot, rightRoot, recursive, strategy, null);
+    }
+
+    /**
+     * Like {@link #compare(PairedEntry, Path, Path, boolean, ComparisonStrategy)}, comparing folders by their
+     * digests when {@code digests} is given. Only valid for content comparison, as digests cover every byte.
+     */
+    public static CompareStatus compare(PairedEntry pe, Path leftRoot, Path rightRoot, boolean recursive,
+                                        ComparisonStrategy strategy, DirectoryDigests digests) {
+        return compare(pe, leftRoot, rightRoot, recursive, strategy, digests, EntryFilter.NONE);
+    }
+
+    /**
+     * Like {@link #compare(PairedEntry, Path, Path, boolean, ComparisonStrategy, DirectoryDigests)}, comparing
+     * folders over the entries the filter accepts. The filter applies from the roots; digests need a filter
+     * without size and age rules.
+     */
+    public static CompareStatus compare(PairedEntry pe, Path leftRoot, Path rightRoot, boolean recursive,
+                                        ComparisonStrategy strategy, DirectoryDigests digests, EntryFilter filter) {
+        FileInfo l = pe.getLeft();
+        FileInfo r = pe.getRight();
+        if (l == null || r == null || l.isDirectory() != r.isDirectory()) {
+            return CompareStatus.DIFFERENT;
+        }
+        try {
+            Path a = leftRoot.resolve(l.getName());
+            Path b = rightRoot.resolve(r.getName());
+            boolean equal;
+            if (l.isDirectory()) {
+                EntryFilter below = filter.under(l.getName());
+                if (digests != null) {
+                    equal = recursive ? digests.treeEqual(a, b, below) : digests.flatEqual(a, b, below);
+                } else {
+                    equal = recursive ? CompareUtil.treesEqual(a, b, strategy, below)
+                            : CompareUtil.directoriesEqual(a, b, strategy, below);
+                }
+            } else {
+                equal = CompareUtil.filesEqual(a, b, strategy);
+            }
+            return equal ? CompareStatus.EQUAL : CompareStatus.DIFFERENT;
+        } catch (RuntimeException ex) {
+            return CompareStatus.ERROR;
+        }
+    }
+
+    private void apply(List<Result> batch) {
+        long current = generation.get();
+        boolean applied = false;
+        for (Result res : batch) {
+            if (res.generation() != current) continue;
+            applied = true;
+            outstanding.decrementAndGet();
+            // An orphan linked by rename detection may be linked before its own result is delivered
+            if (res.entry().getStatus() != CompareStatus.RELOCATED) {
+                res.entry().setStatus(res.status());
+            }
+        }
+        if (applied) fireIfIdle();
+    }
+
+    private void fireIfIdle() {
+        Runnable idle = onIdle;
+        if (idle != null && outstanding.get() <= 0) idle.run();
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,326 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A finished comparison kept for later: every row with the sizes, modification times, cached content digests
+ * and status of both sides. Two snapshots, or a snapshot and the current comparison, can be diffed to see what
+ * changed in between without reading any file contents again.
+ * <p>
+ * Digests are taken from the {@link ContentHashCache} only, so saving a snapshot reads nothing either; files
+ * whose digest is not cached (orphans, or anything compared in a cheaper tier) are diffed by size and
+ * modification time instead.
+ * <p>
+ * The file format is binary: rows are stored in scan order with each name sharing its prefix with the previous
+ * one, and sizes as variable-length numbers, so a recursive snapshot costs a few dozen bytes per row. Statuses
+ * are stored by name in a table at the start and referred to by their index in it, so adding or reordering
+ * {@link CompareStatus} constants does not change what an older snapshot means.
+ */
+public final class ComparisonSnapshot {
+    private static final int MAGIC = 0x46434353; // "FCCS"
+    private static final int VERSION = 2;
+
+    private static final int LEFT = 1;
+    private static final int LEFT_DIRECTORY = 1 << 1;
+    private static final int LEFT_DIGEST = 1 << 2;
+    private static final int RIGHT = 1 << 3;
+    private static final int RIGHT_DIRECTORY = 1 << 4;
+    private static final int RIGHT_DIGEST = 1 << 5;
+    private static final int RIGHT_NAME = 1 << 6; // the right name differs from the left one (in case)
+    private static final int COUNTERPART = 1 << 7;
+
+    /**
+     * One row; a missing side is null, so is a digest that was not cached.
+     */
+    public record Entry(FileInfo left, FileInfo right, byte[] leftDigest, byte[] rightDigest,
+                        CompareStatus status, String counterpart) {
+        public String name() {
+            return left != null ? left.getName() : right.getName();
+        }
+    }
+
+    /** How one side of a row changed between two snapshots. */
+    public enum Change {
+        ADDED("added"),
+        REMOVED("removed"),
+        MODIFIED("modified");
+
+        private final String title;
+
+        Change(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() { return title; }
+    }
+
+    /**
+     * A row that changed between two snapshots.
+     *
+     * @param left   change on the left side, or null if it is unchanged
+     * @param right  change on the right side, or null if it is unchanged
+     * @param before status in the older snapshot, null if the row was not there
+     * @param after  status in the newer snapshot, null if the row is gone
+     */
+    public record Difference(String name, Change left, Change right, CompareStatus before, CompareStatus after) {}
+
+    private final long createdMillis;
+    private final String leftRoot;
+    private final String rightRoot;
+    private final boolean recursive;
+    private final String tier;
+    private final String filter;
+    private final List<Entry> entries;
+
+    public ComparisonSnapshot(long createdMillis, String leftRoot, String rightRoot, boolean recursive,
+                              String tier, String filter, List<Entry> entries) {
+        this.createdMillis = createdMillis;
+        this.leftRoot = leftRoot;
+        this.rightRoot = rightRoot;
+        this.recursive = recursive;
+        this.tier = tier;
+        this.filter = filter == null ? "" : filter;
+        this.entries = List.copyOf(entries);
+    }
+
+    /**
+     * Captures the rows of a comparison, in their order, with the digests the cache holds for unchanged files.
+     *
+     * @param cache digest cache to look up, may be null
+     */
+    public static ComparisonSnapshot capture(List<PairedEntry> rows, Path leftRoot, Path rightRoot, boolean recursive,
+                                             String tier, String filter, ContentHashCache cache) {
+        List<Entry> entries = new ArrayList<>(rows.size());
+        for (PairedEntry pe : rows) {
+            FileInfo l = pe.getLeft();
+            FileInfo r = pe.getRight();
+            entries.add(new Entry(l, r, cachedDigest(cache, leftRoot, l), cachedDigest(cache, rightRoot, r),
+                    pe.getStatus(), pe.getCounterpart()));
+        }
+        return new ComparisonSnapshot(System.currentTimeMillis(), leftRoot.toString(), rightRoot.toString(),
+                recursive, tier, filter, entries);
+    }
+
+    private static byte[] cachedDigest(ContentHashCache cache, Path root, FileInfo fi) {
+        if (cache == null || fi == null || fi.isDirectory() || fi.getModifiedNanos() == FileInfo.NO_TIME) return null;
+        return cache.lookup(root.resolve(fi.getName()), fi.getSize(), fi.getModifiedNanos());
+    }
+
+    public long getCreatedMillis() { return createdMillis; }
+    public String getLeftRoot() { return leftRoot; }
+    public String getRightRoot() { return rightRoot; }
+    public boolean isRecursive() { return recursive; }
+    public String getTier() { return tier; }
+    public String getFilter() { return filter; }
+    public List<Entry> getEntries() { return entries; }
+
+    /**
+     * Lists the rows that differ between an older and a newer snapshot: entries added, removed or modified on
+     * either side, and rows whose comparison status changed. Files are modified when their digests differ, or,
+     * without a digest on both sides, when their size or modification time does.
+     *
+     * @throws IllegalArgumentException if one snapshot lists whole trees and the other the top level only
+     */
+    public static List<Difference> diff(ComparisonSnapshot before, ComparisonSnapshot after) {
+        if (before.recursive != after.recursive) {
+            throw new IllegalArgumentException("One snapshot compares whole trees, the other only the top level.");
+        }
+        Comparator<String> order = after.recursive ? DirectoryScanner.RELATIVE_PATH_ORDER : String.CASE_INSENSITIVE_ORDER;
+        List<Entry> b = before.entries;
+        List<Entry> a = after.entries;
+        List<Difference> out = new ArrayList<>();
+        EntryPairer.merge(b.size(), i -> b.get(i).name(), a.size(), j -> a.get(j).name(), order, (i, j) -> {
+            Entry old = i < 0 ? null : b.get(i);
+            Entry now = j < 0 ? null : a.get(j);
+            Change left = change(old == null ? null : old.left(), old == null ? null : old.leftDigest(),
+                    now == null ? null : now.left(), now == null ? null : now.leftDigest());
+            Change right = change(old == null ? null : old.right(), old == null ? null : old.rightDigest(),
+                    now == null ? null : now.right(), now == null ? null : now.rightDigest());
+            CompareStatus was = old == null ? null : old.status();
+            CompareStatus is = now == null ? null : now.status();
+            if (left != null || right != null || was != is) {
+                out.add(new Difference(now != null ? now.name() : old.name(), left, right, was, is));
+            }
+            return true;
+        });
+        return out;
+    }
+
+    private static Change change(FileInfo old, byte[] oldDigest, FileInfo now, byte[] nowDigest) {
+        if (old == null) return now == null ? null : Change.ADDED;
+        if (now == null) return Change.REMOVED;
+        if (old.isDirectory() != now.isDirectory()) return Change.MODIFIED;
+        if (old.isDirectory()) return null; // its entries have rows of their own, or show in its status
+        if (oldDigest != null && nowDigest != null) {
+            return MessageDigest.isEqual(oldDigest, nowDigest) ? null : Change.MODIFIED;
+        }
+        return old.getSize() != now.getSize() || old.getModifiedNanos() != now.getModifiedNanos() ? Change.MODIFIED : null;
+    }
+
+    /**
+     * Writes the snapshot, replacing the target file atomically.
+     */
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(createdMillis);
+            out.writeUTF(leftRoot);
+            out.writeUTF(rightRoot);
+            out.writeBoolean(recursive);
+            out.writeUTF(tier);
+            out.writeUTF(filter);
+            CompareStatus[] statuses = CompareStatus.values();
+            out.writeByte(statuses.length);
+            for (CompareStatus status : statuses) out.writeUTF(status.name());
+            out.writeInt(entries.size());
+            String previous = "";
+            for (Entry e : entries) {
+                FileInfo l = e.left();
+                FileInfo r = e.right();
+                String name = e.name();
+                boolean rightName = l != null && r != null && !l.getName().equals(r.getName());
+                int flags = (l != null ? LEFT : 0) | (l != null && l.isDirectory() ? LEFT_DIRECTORY : 0)
+                        | (e.leftDigest() != null ? LEFT_DIGEST : 0)
+                        | (r != null ? RIGHT : 0) | (r != null && r.isDirectory() ? RIGHT_DIRECTORY : 0)
+                        | (e.rightDigest() != null ? RIGHT_DIGEST : 0)
+                        | (rightName ? RIGHT_NAME : 0) | (e.counterpart() != null ? COUNTERPART : 0);
+                out.writeByte(flags);
+                out.writeByte(e.status().ordinal()); // index into the table written above
+                int shared = sharedPrefix(previous, name);
+                writeVarLong(out, shared);
+                out.writeUTF(name.substring(shared));
+                previous = name;
+                if (rightName) out.writeUTF(r.getName());
+                if (e.counterpart() != null) out.writeUTF(e.counterpart());
+                if (l != null) writeSide(out, l, e.leftDigest());
+                if (r != null) writeSide(out, r, e.rightDigest());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeSide(DataOutput out, FileInfo fi, byte[] digest) throws IOException {
+        writeVarLong(out, fi.getSize());
+        out.writeLong(fi.getModifiedNanos());
+        if (digest != null) {
+            out.writeByte(digest.length);
+            out.write(digest);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #save}.
+     *
+     * @throws IOException if the file cannot be read, is damaged, or is not a snapshot of this version
+     */
+    public static ComparisonSnapshot load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a comparison snapshot: " + file);
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            long created = in.readLong();
+            String leftRoot = in.readUTF();
+            String rightRoot = in.readUTF();
+            boolean recursive = in.readBoolean();
+            String tier = in.readUTF();
+            String filter = in.readUTF();
+            CompareStatus[] statuses = new CompareStatus[in.readUnsignedByte()];
+            for (int i = 0; i < statuses.length; i++) {
+                String status = in.readUTF();
+                try {
+                    statuses[i] = CompareStatus.valueOf(status);
+                } catch (IllegalArgumentException ex) {
+                    throw new IOException("Damaged snapshot, unknown status " + status + ": " + file, ex);
+                }
+            }
+            int count = in.readInt();
+            if (count < 0) throw new IOException("Damaged snapshot: " + file);
+            List<Entry> entries = new ArrayList<>(Math.min(count, 1 << 16));
+            String previous = "";
+            for (int i = 0; i < count; i++) {
+                int flags = in.readUnsignedByte();
+                int status = in.readUnsignedByte();
+                int shared = (int) readVarLong(in);
+                if (status >= statuses.length || shared > previous.length() || (flags & (LEFT | RIGHT)) == 0) {
+                    throw new IOException("Damaged snapshot: " + file);
+                }
+                String name = previous.substring(0, shared) + in.readUTF();
+                previous = name;
+                String rightName = (flags & RIGHT_NAME) != 0 ? in.readUTF() : name;
+                String counterpart = (flags & COUNTERPART) != 0 ? in.readUTF() : null;
+                FileInfo l = null;
+                FileInfo r = null;
+                byte[] ld = null;
+                byte[] rd = null;
+                if ((flags & LEFT) != 0) {
+                    l = FileInfo.ofEpochNanos(name, (flags & LEFT_DIRECTORY) != 0, readVarLong(in), in.readLong());
+                    if ((flags & LEFT_DIGEST) != 0) ld = readDigest(in);
+                }
+                if ((flags & RIGHT) != 0) {
+                    r = FileInfo.ofEpochNanos(rightName, (flags & RIGHT_DIRECTORY) != 0, readVarLong(in), in.readLong());
+                    if ((flags & RIGHT_DIGEST) != 0) rd = readDigest(in);
+                }
+                entries.add(new Entry(l, r, ld, rd, statuses[status], counterpart));
+            }
+            return new ComparisonSnapshot(created, leftRoot, rightRoot, recursive, tier, filter, entries);
+        } catch (EOFException ex) {
+            throw new IOException("Truncated snapshot: " + file, ex);
+        }
+    }
+
+    private static byte[] readDigest(DataInput in) throws IOException {
+        byte[] digest = new byte[in.readUnsignedByte()];
+        in.readFully(digest);
+        return digest;
+    }
+
+    private static int sharedPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    // Zigzag varint: small values of either sign take one or two bytes
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (v >>> 1) ^ -(v & 1);
+        }
+        throw new IOException("Damaged snapshot: number too long");
+    }
+}
@@ -0,0 +1,23 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Decides whether two regular files have the same content.
+ * Implementations range from metadata-only checks to full content reads and can be chained
+ * with {@link TieredComparison}, which escalates only when a cheaper strategy cannot decide.
+ */
+public interface ComparisonStrategy {
+
+    /**
+     * Compares two regular files.
+     *
+     * @return {@link CompareStatus#EQUAL} or {@link CompareStatus#DIFFERENT} when this strategy can decide,
+     *         or {@link CompareStatus#PENDING} to defer to a more thorough strategy
+     */
+    CompareStatus compareFiles(Path a, BasicFileAttributes aa, Path b, BasicFileAttributes ab) throws IOException;
+}
@@ -0,0 +1,49 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+
+import java.util.List;
+
+/**
+ * How thoroughly a session compares files. Each tier first runs the cheaper ones and only
+ * escalates when they cannot decide.
+ */
+public enum ComparisonTier {
+    /** Size and modification time only. */
+    METADATA("Metadata"),
+    /** Size, then head, tail and a few random blocks. */
+    SAMPLED("Sampled blocks"),
+    /** Size, cached digests, sampled blocks, then every byte. */
+    CONTENT("Full content");
+
+    private final String label;
+
+    ComparisonTier(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Builds the strategy chain for this tier.
+     *
+     * @param cache digest cache for the full content tier, may be null
+     */
+    public ComparisonStrategy strategy(ContentHashCache cache) {
+        return switch (this) {
+            case METADATA -> new MetadataComparison(true);
+            case SAMPLED -> new TieredComparison(List.of(
+                    new MetadataComparison(false),
+                    new SampledComparison(Constants.SAMPLE_BLOCK_SIZE, Constants.SAMPLE_BLOCK_COUNT, true)));
+            case CONTENT -> new TieredComparison(List.of(
+                    new MetadataComparison(false),
+                    new CachedDigestComparison(cache),
+                    new SampledComparison(Constants.SAMPLE_BLOCK_SIZE, Constants.SAMPLE_BLOCK_COUNT, false),
+                    new ContentComparison(cache)));
+        };
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
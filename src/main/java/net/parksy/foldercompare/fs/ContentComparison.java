@@ -0,0 +1,33 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+
+/**
+ * Full content comparison; always decisive. With a {@link ContentHashCache} the digests decide: a file
+ * with a valid cached digest is not read, and a file without one is hashed once and its digest kept, so
+ * unchanged files are not read again on the next comparison. Without a cache both files are read through
+ * {@link CompareUtil#mismatch(Path, Path)}.
+ */
+public final class ContentComparison implements ComparisonStrategy {
+    private final ContentHashCache cache;
+
+    public ContentComparison(ContentHashCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public CompareStatus compareFiles(Path a, BasicFileAttributes aa, Path b, BasicFileAttributes ab) throws IOException {
+        if (aa.size() != ab.size()) return CompareStatus.DIFFERENT;
+        if (aa.size() == 0) return CompareStatus.EQUAL;
+        boolean equal = cache != null
+                ? MessageDigest.isEqual(cache.digest(a, aa), cache.digest(b, ab))
+                : CompareUtil.mismatch(a, b) == -1L;
+        return equal ? CompareStatus.EQUAL : CompareStatus.DIFFERENT;
+    }
+}
@@ -0,0 +1,91 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Brings an existing destination file up to date by rewriting only the blocks that differ from the source,
+ * in place. For a large file that changed in a few places (a database image, a virtual disk) this replaces
+ * a full write of the file with reads of both sides and a handful of small writes.
+ * <p>
+ * Blocks are compared at the same offset on both sides. Content that was inserted or removed shifts every
+ * later block, which are then all rewritten; the file is still correct, just not cheaper to update.
+ * <p>
+ * The destination is never truncated first. If the update is cancelled or fails, it is left partly updated
+ * with a fresh modification time, so the next comparison reports it as different and the next copy finishes it.
+ */
+public final class DeltaCopy {
+    private DeltaCopy() {}
+
+    /**
+     * Whether {@link #update} is worth trying: the destination exists as a regular file and the source is at
+     * least {@link Constants#DELTA_COPY_MIN_SIZE} bytes.
+     */
+    static boolean applies(long sourceSize, boolean destinationIsFile) {
+        return destinationIsFile && sourceSize >= Constants.DELTA_COPY_MIN_SIZE;
+    }
+
+    /**
+     * Rewrites the blocks of {@code dst} that differ from {@code src} and sets its length to the source's.
+     * Every source byte is counted in the progress, whether it had to be written or not; the ones that did not
+     * are also counted as {@linkplain TransferProgress#addBytesInPlace in place}.
+     *
+     * @return the number of bytes written to {@code dst}
+     */
+    public static long update(Path src, Path dst, TransferProgress progress) throws IOException {
+        return update(src, dst, Constants.DELTA_COPY_BLOCK_SIZE, progress);
+    }
+
+    static long update(Path src, Path dst, int blockSize, TransferProgress progress) throws IOException {
+        long written = 0;
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dst, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long oldSize = out.size();
+            ByteBuffer a = ByteBuffer.allocateDirect(blockSize);
+            ByteBuffer b = ByteBuffer.allocateDirect(blockSize);
+            long pos = 0;
+            while (pos < size) {
+                progress.checkCancelled();
+                int len = (int) Math.min(blockSize, size - pos);
+                a.clear().limit(len);
+                if (read(in, a, pos) < len) break; // source shrank while copying
+                a.flip();
+                boolean same = false;
+                if (pos + len <= oldSize) {
+                    b.clear().limit(len);
+                    same = read(out, b, pos) == len && a.equals(b.flip());
+                }
+                if (!same) {
+                    while (a.hasRemaining()) {
+                        out.write(a, pos + a.position());
+                    }
+                    written += len;
+                } else {
+                    progress.addBytesInPlace(len);
+                }
+                pos += len;
+                progress.addBytes(len);
+            }
+            if (oldSize > pos) {
+                out.truncate(pos);
+            }
+        }
+        progress.fileDone();
+        return written;
+    }
+
+    private static int read(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        int start = buf.position();
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position() - start);
+            if (n < 0) break;
+        }
+        return buf.position() - start;
+    }
+}
@@ -0,0 +1,361 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merkle-style digests of folders, so two folders can be compared by one digest each instead of
+ * file by file. A folder's digest is built bottom-up from its children's names, types, sizes and
+ * content digests (SHA-256, through the {@link ContentHashCache}) and its subfolders' digests.
+ * <p>
+ * Each comparison first lists both sides once and compares names, types and sizes; folders that
+ * already differ there are reported without reading a byte. Only matching listings are digested.
+ * <p>
+ * Each folder remembers a stamp of its children's names, sizes, modification times and file keys.
+ * While the stamp matches, the folder's file digests are reused without looking at the cache or
+ * the contents; validating a folder therefore costs one stat per entry and never a read. The tree
+ * digest is likewise kept against the stamps of every folder below, so an unchanged subtree is
+ * never hashed again.
+ * <p>
+ * Two digests are kept per folder: the <em>flat</em> digest covers only its regular files (the
+ * semantics of {@link CompareUtil#directoriesEqual}), the <em>tree</em> digest its whole subtree
+ * (the semantics of {@link CompareUtil#treesEqual}). Symbolic links to folders are not followed.
+ * <p>
+ * An {@link EntryFilter} leaves entries out of the digests by its name rules, and is part of the cache key;
+ * size and age rules are not supported here, since digests are computed per side.
+ */
+public final class DirectoryDigests {
+    private static final byte TYPE_FILE = 'f';
+    private static final byte TYPE_DIRECTORY = 'd';
+    private static final byte TYPE_LINKED_DIRECTORY = 'l';
+    private static final byte TYPE_OTHER = 'o';
+
+    private record Child(String name, Path path, BasicFileAttributes attrs, boolean link) {
+        byte type() {
+            return attrs.isRegularFile() ? TYPE_FILE : !attrs.isDirectory() ? TYPE_OTHER
+                    : link ? TYPE_LINKED_DIRECTORY : TYPE_DIRECTORY;
+        }
+    }
+
+    /**
+     * One folder as listed for a single comparison; subfolders are listed too for tree comparisons.
+     *
+     * @param stamp     names, sizes, times and file keys of the children
+     * @param treeStamp the stamp combined with the tree stamps of all subfolders
+     */
+    private record Listing(Path dir, EntryFilter filter, List<Child> children, Map<String, Listing> folders,
+                           byte[] stamp, byte[] treeStamp) {}
+
+    /**
+     * Cached digests of a folder: the flat digest for {@code stamp}, the tree digest (or null) for {@code treeStamp}.
+     */
+    private record Node(byte[] stamp, byte[] flat, byte[] treeStamp, byte[] tree) {}
+
+    private final ContentHashCache files;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Node> nodes;
+
+    /**
+     * @param files digest cache for file contents; null keeps file digests in memory only
+     */
+    public DirectoryDigests(ContentHashCache files) {
+        this(files, Constants.DIRECTORY_DIGEST_MAX_ENTRIES);
+    }
+
+    public DirectoryDigests(ContentHashCache files, int maxEntries) {
+        this.files = files != null ? files : new ContentHashCache(Constants.HASH_CACHE_MAX_ENTRIES);
+        this.maxEntries = maxEntries;
+        this.nodes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Node> eldest) {
+                return size() > DirectoryDigests.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Whether two folders hold the same regular files (names, sizes and contents), ignoring subfolders.
+     */
+    public boolean flatEqual(Path a, Path b) {
+        return flatEqual(a, b, EntryFilter.NONE);
+    }
+
+    /**
+     * Like {@link #flatEqual(Path, Path)}, for the files the filter (scoped to the folders) accepts.
+     */
+    public boolean flatEqual(Path a, Path b, EntryFilter filter) {
+        try {
+            Listing la = walk(a, filter, false);
+            Listing lb = walk(b, filter, false);
+            return sameFiles(la, lb) && MessageDigest.isEqual(flat(la).flat(), flat(lb).flat());
+        } catch (IOException | UncheckedIOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether two folders hold the same tree: relative paths, types, sizes and file contents.
+     */
+    public boolean treeEqual(Path a, Path b) {
+        return treeEqual(a, b, EntryFilter.NONE);
+    }
+
+    /**
+     * Like {@link #treeEqual(Path, Path)}, for the entries the filter (scoped to the folders) accepts.
+     */
+    public boolean treeEqual(Path a, Path b, EntryFilter filter) {
+        try {
+            Listing la = walk(a, filter, true);
+            Listing lb = walk(b, filter, true);
+            return sameTree(la, lb) && MessageDigest.isEqual(tree(la), tree(lb));
+        } catch (IOException | UncheckedIOException ex) {
+            return false;
+        }
+    }
+
+    public byte[] flatDigest(Path dir) throws IOException {
+        return flatDigest(dir, EntryFilter.NONE);
+    }
+
+    public byte[] flatDigest(Path dir, EntryFilter filter) throws IOException {
+        return flat(walk(dir, filter, false)).flat();
+    }
+
+    public byte[] treeDigest(Path dir) throws IOException {
+        return treeDigest(dir, EntryFilter.NONE);
+    }
+
+    public byte[] treeDigest(Path dir, EntryFilter filter) throws IOException {
+        return tree(walk(dir, filter, true));
+    }
+
+    /**
+     * Relative paths (platform separator) of the entries that differ between two folder trees: missing on
+     * one side, of another type, or with different content. Only subtrees whose digests differ are entered.
+     */
+    public List<String> differences(Path a, Path b) throws IOException {
+        return differences(a, b, EntryFilter.NONE);
+    }
+
+    public List<String> differences(Path a, Path b, EntryFilter filter) throws IOException {
+        List<String> out = new ArrayList<>();
+        collectDifferences(walk(a, filter, true), walk(b, filter, true), "", out);
+        return out;
+    }
+
+    private void collectDifferences(Listing a, Listing b, String prefix, List<String> out) throws IOException {
+        Map<String, Child> left = byName(a.children());
+        Map<String, Child> right = byName(b.children());
+        TreeMap<String, Boolean> names = new TreeMap<>();
+        left.keySet().forEach(n -> names.put(n, true));
+        right.keySet().forEach(n -> names.put(n, true));
+        for (String name : names.keySet()) {
+            Child l = left.get(name);
+            Child r = right.get(name);
+            String rel = prefix + name;
+            if (l == null || r == null || l.type() != r.type()) {
+                out.add(rel);
+            } else if (l.type() == TYPE_LINKED_DIRECTORY) {
+                continue; // not followed
+            } else if (l.type() == TYPE_DIRECTORY) {
+                Listing sa = a.folders().get(name);
+                Listing sb = b.folders().get(name);
+                // Subtrees that already differ in shape are entered without hashing them first
+                if (!sameTree(sa, sb) || !MessageDigest.isEqual(tree(sa), tree(sb))) {
+                    collectDifferences(sa, sb, rel + l.path().getFileSystem().getSeparator(), out);
+                }
+            } else if (l.attrs().size() != r.attrs().size()
+                    || !l.attrs().isRegularFile() || !r.attrs().isRegularFile()
+                    || !MessageDigest.isEqual(files.digest(l.path(), l.attrs()), files.digest(r.path(), r.attrs()))) {
+                out.add(rel);
+            }
+        }
+    }
+
+    private static Map<String, Child> byName(List<Child> children) {
+        Map<String, Child> map = new LinkedHashMap<>();
+        for (Child c : children) map.put(c.name(), c);
+        return map;
+    }
+
+    /**
+     * Lists a folder, and for a tree all folders below it, once, with the stamps of each folder.
+     */
+    private static Listing walk(Path dir, EntryFilter filter, boolean recursive) throws IOException {
+        List<Child> children = list(dir, filter);
+        Map<String, Listing> folders = new LinkedHashMap<>();
+        MessageDigest stampMd = sha256();
+        for (Child c : children) {
+            BasicFileAttributes attrs = c.attrs();
+            update(stampMd, c.name(), attrs.isDirectory() ? TYPE_DIRECTORY : TYPE_FILE, attrs.size());
+            // then file key and modification time, which change when a file is rewritten in place
+            update(stampMd, String.valueOf(attrs.fileKey()), TYPE_OTHER, attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+            if (recursive && c.type() == TYPE_DIRECTORY) {
+                folders.put(c.name(), walk(c.path(), filter.under(c.name()), true));
+            }
+        }
+        byte[] stamp = stampMd.digest();
+        MessageDigest treeMd = sha256();
+        treeMd.update(stamp);
+        for (Listing sub : folders.values()) {
+            treeMd.update(sub.treeStamp());
+        }
+        return new Listing(dir, filter, children, folders, stamp, treeMd.digest());
+    }
+
+    /**
+     * Whether both folders hold regular files of the same names and sizes.
+     */
+    private static boolean sameFiles(Listing a, Listing b) {
+        List<Child> fa = a.children().stream().filter(c -> c.attrs().isRegularFile()).toList();
+        List<Child> fb = b.children().stream().filter(c -> c.attrs().isRegularFile()).toList();
+        if (fa.size() != fb.size()) return false;
+        for (int i = 0; i < fa.size(); i++) {
+            if (!fa.get(i).name().equals(fb.get(i).name()) || fa.get(i).attrs().size() != fb.get(i).attrs().size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether both trees have the same names and types everywhere, and files of the same sizes.
+     */
+    private static boolean sameTree(Listing a, Listing b) {
+        List<Child> ca = a.children();
+        List<Child> cb = b.children();
+        if (ca.size() != cb.size()) return false;
+        for (int i = 0; i < ca.size(); i++) {
+            Child x = ca.get(i);
+            Child y = cb.get(i);
+            if (!x.name().equals(y.name()) || x.type() != y.type()) return false;
+            if (x.type() == TYPE_FILE || x.type() == TYPE_OTHER) {
+                if (x.attrs().size() != y.attrs().size()) return false;
+            } else if (x.type() == TYPE_DIRECTORY && !sameTree(a.folders().get(x.name()), b.folders().get(y.name()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String key(Listing l) {
+        return l.dir().toAbsolutePath().normalize() + l.filter().cacheKey();
+    }
+
+    /**
+     * Returns the folder's node with a flat digest for its current stamp, hashing its files only when the stamp changed.
+     */
+    private Node flat(Listing l) throws IOException {
+        String key = key(l);
+        Node cached;
+        synchronized (this) {
+            cached = nodes.get(key);
+        }
+        if (cached != null && Arrays.equals(cached.stamp(), l.stamp())) {
+            return cached;
+        }
+
+        // Callers already run one comparison per worker, so files are hashed in turn; unchanged ones come from the cache
+        MessageDigest md = sha256();
+        for (Child c : l.children()) {
+            if (!c.attrs().isRegularFile()) continue;
+            update(md, c.name(), TYPE_FILE, c.attrs().size());
+            md.update(files.digest(c.path(), c.attrs()));
+        }
+        Node node = new Node(l.stamp(), md.digest(), null, null);
+        synchronized (this) {
+            nodes.put(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the folder's tree digest, reused while no folder below it changed its stamp.
+     */
+    private byte[] tree(Listing l) throws IOException {
+        Node node = flat(l);
+        if (node.tree() != null && Arrays.equals(node.treeStamp(), l.treeStamp())) {
+            return node.tree();
+        }
+        MessageDigest md = sha256();
+        md.update(node.flat());
+        for (Child c : l.children()) {
+            byte type = c.type();
+            if (type == TYPE_FILE) continue; // covered by the flat digest
+            update(md, c.name(), type, c.attrs().isDirectory() ? -1L : c.attrs().size());
+            if (type == TYPE_DIRECTORY) {
+                md.update(tree(l.folders().get(c.name())));
+            }
+        }
+        byte[] tree = md.digest();
+        synchronized (this) {
+            nodes.put(key(l), new Node(node.stamp(), node.flat(), l.treeStamp(), tree));
+        }
+        return tree;
+    }
+
+    /**
+     * Lists a folder's readable children the filter accepts with their attributes, sorted by name (case-sensitive).
+     */
+    private static List<Child> list(Path dir, EntryFilter filter) throws IOException {
+        if (filter.hasAttributeRules()) {
+            throw new IllegalArgumentException("Folder digests do not support size or age rules");
+        }
+        List<Child> children = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                if (filter.skipsName(name)) continue;
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                } catch (IOException ex) {
+                    continue; // unreadable entries are skipped, as the scanners do
+                }
+                if (!filter.accepts(name, attrs.isDirectory())) continue;
+                boolean link = attrs.isDirectory() && Files.isSymbolicLink(p);
+                children.add(new Child(name, p, attrs, link));
+            }
+        }
+        children.sort((x, y) -> x.name().compareTo(y.name()));
+        return children;
+    }
+
+    private static void update(MessageDigest md, String name, byte type, long value) {
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        md.update(type);
+        md.update(intBytes(utf8.length));
+        md.update(utf8);
+        md.update(intBytes((int) (value >>> 32)));
+        md.update(intBytes((int) value));
+    }
+
+    private static byte[] intBytes(int v) {
+        return new byte[] {(byte) (v >>> 24), (byte) (v >>> 16), (byte) (v >>> 8), (byte) v};
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
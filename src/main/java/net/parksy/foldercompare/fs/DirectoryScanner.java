@@ -1,23 +1,49 @@
 package net.parksy.foldercompare.fs;
 
 import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.ScanSnapshot;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
 
 public final class DirectoryScanner {
     private DirectoryScanner() {}
 
+    /**
+     * Orders relative paths (using the platform separator) the way a recursive scan emits them:
+     * segment by segment, case-insensitively, so every directory is directly followed by its subtree.
+     */
+    public static final Comparator<String> RELATIVE_PATH_ORDER = DirectoryScanner::compareRelativePaths;
+
+    /**
+     * Pool for recursive scans. Sized above the core count since the work is dominated by blocking stat calls.
+     */
+    static final ForkJoinPool POOL = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
     /**
      * Scans a directory (non-recursive) and returns a map of name -> FileInfo sorted case-insensitively by name.
      */
     public static Map<String, FileInfo> scanDir(String pathText) {
+        return scanDir(pathText, EntryFilter.NONE);
+    }
+
+    /**
+     * Like {@link #scanDir(String)}, leaving out entries by the filter's name rules; names it excludes are not stat'ed.
+     */
+    public static Map<String, FileInfo> scanDir(String pathText, EntryFilter filter) {
         Map<String, FileInfo> map = new LinkedHashMap<>();
         if (pathText == null || pathText.isBlank()) {
             return map;
@@ -26,21 +52,174 @@ public final class DirectoryScanner {
         if (!Files.isDirectory(p)) {
             return map;
         }
-        try {
-            Files.list(p)
+        List<Path> children;
+        try (var listing = Files.list(p)) {
+            children = listing
+                .filter(child -> !filter.skipsName(child.getFileName().toString()))
                 .sorted(Comparator.comparing(Path::getFileName, (a, b) -> a.toString().compareToIgnoreCase(b.toString())))
-                .forEach(child -> {
-                    try {
-                        BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class);
-                        boolean isDir = attrs.isDirectory();
-                        long size = isDir ? -1L : attrs.size();
-                        Instant mod = attrs.lastModifiedTime().toInstant();
-                        map.put(child.getFileName().toString(), new FileInfo(child.getFileName().toString(), isDir, size, mod));
-                    } catch (IOException ignored) {
-                    }
-                });
+                .toList();
         } catch (IOException ignored) {
+            return map;
+        }
+        // Attributes are read concurrently, bounded per file store
+        for (FileInfo fi : BoundedIo.mapAll(p, children, child -> readInfo(child, child.getFileName().toString()))) {
+            if (fi != null && filter.accepts(fi.getName(), fi.isDirectory())) {
+                map.put(fi.getName(), fi);
+            }
         }
         return map;
     }
+
+    /**
+     * Recursively scans a directory tree and returns a map of relative path -> FileInfo in
+     * {@link #RELATIVE_PATH_ORDER}. FileInfo names are the relative paths. Subdirectories are
+     * walked in parallel on a fork/join pool; symbolic links to directories are listed but not followed.
+     */
+    public static Map<String, FileInfo> scanTree(String pathText) {
+        return scanTreeAsync(pathText).join();
+    }
+
+    /**
+     * Starts a recursive scan on the scanner pool, so both sides of a comparison can be walked concurrently.
+     */
+    public static ForkJoinTask<Map<String, FileInfo>> scanTreeAsync(String pathText) {
+        return POOL.submit(() -> {
+            ScanSnapshot snapshot = snapshotTreeAsync(pathText).join();
+            Map<String, FileInfo> map = new LinkedHashMap<>(Math.max(16, snapshot.count() * 4 / 3 + 1));
+            for (int i = 0; i < snapshot.count(); i++) {
+                FileInfo fi = snapshot.fileInfo(i);
+                map.put(fi.getName(), fi);
+            }
+            return map;
+        });
+    }
+
+    /**
+     * Same walk as {@link #scanTree(String)}, returned as a column store instead of one object per entry.
+     * Names are the relative paths, entries in {@link #RELATIVE_PATH_ORDER}.
+     */
+    public static ScanSnapshot snapshotTree(String pathText) {
+        return snapshotTreeAsync(pathText).join();
+    }
+
+    public static ForkJoinTask<ScanSnapshot> snapshotTreeAsync(String pathText) {
+        return snapshotTreeAsync(pathText, EntryFilter.NONE);
+    }
+
+    /**
+     * Starts a recursive scan that applies the filter's name rules as it walks: excluded names are not stat'ed
+     * and excluded folders are not entered. Size and age rules are left to the caller, which sees both sides.
+     */
+    public static ForkJoinTask<ScanSnapshot> snapshotTreeAsync(String pathText, EntryFilter filter) {
+        return POOL.submit(() -> {
+            if (pathText == null || pathText.isBlank()) {
+                return ScanSnapshot.EMPTY;
+            }
+            Path p = Path.of(pathText);
+            if (!Files.isDirectory(p)) {
+                return ScanSnapshot.EMPTY;
+            }
+            List<ScanSnapshot> pieces = new TreeScanTask(p, "", filter).invoke();
+            int total = 0;
+            for (ScanSnapshot piece : pieces) total += piece.count();
+            ScanSnapshot.Builder all = new ScanSnapshot.Builder(total);
+            for (ScanSnapshot piece : pieces) all.addAll(piece);
+            return all.build();
+        });
+    }
+
+    /**
+     * Lists one directory, forks a subtask per subdirectory and returns the subtree in pre-order,
+     * as consecutive pieces that are concatenated once at the top (so no entry is copied per level).
+     */
+    private static final class TreeScanTask extends RecursiveTask<List<ScanSnapshot>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final String prefix;
+        private final EntryFilter filter;
+
+        TreeScanTask(Path dir, String prefix, EntryFilter filter) {
+            this.dir = dir;
+            this.prefix = prefix;
+            this.filter = filter;
+        }
+
+        @Override
+        protected List<ScanSnapshot> compute() {
+            List<Path> children = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path child : ds) {
+                    children.add(child);
+                }
+            } catch (IOException ignored) {
+                return List.of();
+            }
+            children.sort(Comparator.comparing(Path::getFileName, (a, b) -> a.toString().compareToIgnoreCase(b.toString())));
+
+            // Own entries are cut into runs, each ending at a subdirectory whose subtree follows it
+            List<ScanSnapshot> runs = new ArrayList<>();
+            List<TreeScanTask> subtasks = new ArrayList<>();
+            ScanSnapshot.Builder run = new ScanSnapshot.Builder(children.size());
+            for (Path child : children) {
+                String rel = prefix + child.getFileName().toString();
+                if (filter.skipsName(rel)) continue;
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(child, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue;
+                }
+                boolean isDir = attrs.isDirectory();
+                if (!filter.accepts(rel, isDir)) continue;
+                run.add(rel, isDir, isDir ? -1L : attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+                // Do not follow directory links: they may form cycles
+                if (isDir && !Files.isSymbolicLink(child)) {
+                    TreeScanTask t = new TreeScanTask(child, rel + File.separator, filter);
+                    t.fork();
+                    subtasks.add(t);
+                    runs.add(run.build());
+                    run = new ScanSnapshot.Builder();
+                }
+            }
+            if (run.count() > 0) runs.add(run.build());
+
+            List<ScanSnapshot> result = new ArrayList<>(runs.size() + subtasks.size());
+            for (int k = 0; k < runs.size(); k++) {
+                result.add(runs.get(k));
+                if (k < subtasks.size()) result.addAll(subtasks.get(k).join());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Reads the attributes of one entry, or returns null if it vanished or cannot be read.
+     */
+    static FileInfo readInfo(Path child, String name) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class);
+            boolean isDir = attrs.isDirectory();
+            long size = isDir ? -1L : attrs.size();
+            return FileInfo.ofEpochNanos(name, isDir, size, attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static int compareRelativePaths(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        for (int i = 0; i < n; i++) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(i);
+            if (ca == cb) continue;
+            // The separator sorts before any other character, so "a/x" precedes "a b"
+            if (ca == File.separatorChar) return -1;
+            if (cb == File.separatorChar) return 1;
+            ca = Character.toLowerCase(Character.toUpperCase(ca));
+            cb = Character.toLowerCase(Character.toUpperCase(cb));
+            if (ca != cb) return ca - cb;
+        }
+        return a.length() - b.length();
+    }
 }
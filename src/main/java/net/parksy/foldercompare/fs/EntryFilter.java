@@ -0,0 +1,319 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+import net.parksy.foldercompare.model.FileInfo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Include and exclude rules for the entries of a comparison, compiled once and applied while scanning:
+ * name rules are checked before an entry's attributes are read, and an excluded folder is never entered.
+ * <p>
+ * Rules are separated by {@code ;} or line breaks:
+ * <ul>
+ *   <li>{@code -pattern} excludes matching files and folders; {@code -pattern/} matches folders only.</li>
+ *   <li>{@code +pattern} includes matching files; once any include is given, other files are left out.
+ *       Folders are still entered.</li>
+ *   <li>A pattern is a glob ({@code *}, {@code ?}, {@code [abc]}, {@code **}); without a {@code /} it matches
+ *       the entry's name at any depth, with one the path from the compared folder. {@code re:} starts a regular
+ *       expression matched against that whole path. Paths use {@code /} on every platform.</li>
+ *   <li>{@code size<100M}, {@code size>1K} (K, M, G, T) and {@code age<30d}, {@code age>2h} (s, m, h, d, w)
+ *       keep only files of that size or age.</li>
+ * </ul>
+ * Matching ignores case, like the pairing of names. Size and age need the attributes, so they decide per row:
+ * a row is kept while either side passes, and a file is never shown on one side only because of them.
+ */
+public final class EntryFilter {
+    private static final Pattern ATTRIBUTE_RULE =
+            Pattern.compile("(size|age)\\s*([<>])\\s*(\\d+)\\s*([a-z]*)", Pattern.CASE_INSENSITIVE);
+
+    public static final EntryFilter NONE = parse("");
+
+    /** Name rules of one kind: literal names in a set, the other globs and paths each as one combined pattern. */
+    private record Rules(Set<String> names, Pattern globs, Pattern paths) {
+        boolean isEmpty() {
+            return names.isEmpty() && globs == null && paths == null;
+        }
+
+        boolean matches(String name, String path) {
+            return (!names.isEmpty() && names.contains(name.toLowerCase(Locale.ROOT)))
+                    || (globs != null && globs.matcher(name).matches())
+                    || (paths != null && paths.matcher(path).matches());
+        }
+    }
+
+    private static final class RulesBuilder {
+        final Set<String> names = new HashSet<>();
+        final List<String> globs = new ArrayList<>();
+        final List<String> paths = new ArrayList<>();
+
+        Rules build() {
+            return new Rules(Set.copyOf(names), combine(globs), combine(paths));
+        }
+
+        private static Pattern combine(List<String> regexes) {
+            if (regexes.isEmpty()) return null;
+            return Pattern.compile("(?:" + String.join(")|(?:", regexes) + ")", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        }
+    }
+
+    private final String spec;
+    private final Rules exclude;
+    private final Rules excludeFolders;
+    private final Rules include;
+    private final long maxSize;
+    private final long minSize;
+    private final long newerThanNanos;
+    private final long olderThanNanos;
+    private final String prefix;
+
+    private EntryFilter(String spec, Rules exclude, Rules excludeFolders, Rules include,
+                        long maxSize, long minSize, long newerThanNanos, long olderThanNanos, String prefix) {
+        this.spec = spec;
+        this.exclude = exclude;
+        this.excludeFolders = excludeFolders;
+        this.include = include;
+        this.maxSize = maxSize;
+        this.minSize = minSize;
+        this.newerThanNanos = newerThanNanos;
+        this.olderThanNanos = olderThanNanos;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Compiles the rules; ages are measured from now.
+     *
+     * @throws IllegalArgumentException naming the rule that could not be read
+     */
+    public static EntryFilter parse(String spec) {
+        return parse(spec, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()));
+    }
+
+    static EntryFilter parse(String spec, long nowNanos) {
+        String text = spec == null ? "" : spec.strip();
+        if (text.length() > Constants.MAX_FILTER_LENGTH) {
+            throw new IllegalArgumentException("Filter rules are longer than " + Constants.MAX_FILTER_LENGTH + " characters");
+        }
+        RulesBuilder exclude = new RulesBuilder();
+        RulesBuilder excludeFolders = new RulesBuilder();
+        RulesBuilder include = new RulesBuilder();
+        long maxSize = Long.MAX_VALUE;
+        long minSize = -1;
+        long newerThan = Long.MIN_VALUE;
+        long olderThan = Long.MAX_VALUE;
+        for (String raw : text.split("[;\\r\\n]")) {
+            String rule = raw.strip();
+            if (rule.isEmpty()) continue;
+            Matcher m = ATTRIBUTE_RULE.matcher(rule);
+            if (m.matches()) {
+                boolean below = m.group(2).equals("<");
+                try {
+                    long value = Long.parseLong(m.group(3));
+                    if (m.group(1).equalsIgnoreCase("size")) {
+                        long bytes = Math.multiplyExact(value, sizeUnit(m.group(4), rule));
+                        if (below) maxSize = bytes; else minSize = bytes;
+                    } else {
+                        // toNanos saturates at Long.MAX_VALUE, which still leaves nowNanos - age in range
+                        long age = TimeUnit.SECONDS.toNanos(Math.multiplyExact(value, ageUnitSeconds(m.group(4), rule)));
+                        if (below) newerThan = nowNanos - age; else olderThan = nowNanos - age;
+                    }
+                } catch (ArithmeticException | NumberFormatException ex) {
+                    throw new IllegalArgumentException("Number too large in \"" + rule + "\"");
+                }
+                continue;
+            }
+            char sign = rule.charAt(0);
+            String pattern = rule.substring(1).strip();
+            if ((sign != '-' && sign != '+') || pattern.isEmpty()) {
+                throw new IllegalArgumentException("Unknown rule \"" + rule + "\": use -pattern, +pattern, size<N, size>N, age<N or age>N");
+            }
+            boolean foldersOnly = pattern.length() > 1 && pattern.endsWith("/");
+            if (foldersOnly) pattern = pattern.substring(0, pattern.length() - 1);
+            if (sign == '+' && foldersOnly) {
+                throw new IllegalArgumentException("Include rules apply to files, not folders: \"" + rule + "\"");
+            }
+            RulesBuilder target = sign == '+' ? include : foldersOnly ? excludeFolders : exclude;
+            if (pattern.startsWith("re:")) {
+                String regex = pattern.substring(3);
+                Pattern.compile(regex); // PatternSyntaxException is an IllegalArgumentException naming the problem
+                target.paths.add(regex);
+            } else if (pattern.indexOf('/') >= 0) {
+                target.paths.add(globToRegex(pattern.startsWith("/") ? pattern.substring(1) : pattern));
+            } else if (pattern.chars().noneMatch(c -> c == '*' || c == '?' || c == '[')) {
+                target.names.add(pattern.toLowerCase(Locale.ROOT));
+            } else {
+                target.globs.add(globToRegex(pattern));
+            }
+        }
+        return new EntryFilter(text, exclude.build(), excludeFolders.build(), include.build(),
+                maxSize, minSize, newerThan, olderThan, "");
+    }
+
+    private static long sizeUnit(String unit, String rule) {
+        return switch (unit.toLowerCase(Locale.ROOT)) {
+            case "", "b" -> 1L;
+            case "k", "kb", "kib" -> 1L << 10;
+            case "m", "mb", "mib" -> 1L << 20;
+            case "g", "gb", "gib" -> 1L << 30;
+            case "t", "tb", "tib" -> 1L << 40;
+            default -> throw new IllegalArgumentException("Unknown size unit in \"" + rule + "\": use K, M, G or T");
+        };
+    }
+
+    private static long ageUnitSeconds(String unit, String rule) {
+        return switch (unit.toLowerCase(Locale.ROOT)) {
+            case "s" -> 1L;
+            case "m" -> 60L;
+            case "h" -> 3600L;
+            case "d" -> 86_400L;
+            case "w" -> 7 * 86_400L;
+            default -> throw new IllegalArgumentException("Missing or unknown age unit in \"" + rule + "\": use s, m, h, d or w");
+        };
+    }
+
+    /**
+     * Translates a glob to a regular expression: {@code *} and {@code ?} stay within one path segment,
+     * {@code **} crosses segments and {@code **}{@code /} also matches no folder at all.
+     */
+    static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            sb.append("(?:.*/)?");
+                        } else {
+                            sb.append(".*");
+                        }
+                    } else {
+                        sb.append("[^/]*");
+                    }
+                }
+                case '?' -> sb.append("[^/]");
+                case '[' -> {
+                    int end = glob.indexOf(']', i + 2);
+                    if (end < 0) {
+                        sb.append("\\[");
+                    } else {
+                        String set = glob.substring(i + 1, end);
+                        if (set.startsWith("!")) set = "^" + set.substring(1);
+                        sb.append('[').append(set.replace("\\", "\\\\")).append(']');
+                        i = end;
+                    }
+                }
+                default -> {
+                    if ("\\.^$|+(){}]".indexOf(c) >= 0) sb.append('\\');
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /** The rules as given to {@link #parse}. */
+    public String spec() { return spec; }
+
+    public boolean isEmpty() {
+        return exclude.isEmpty() && excludeFolders.isEmpty() && include.isEmpty() && !hasAttributeRules();
+    }
+
+    /** Whether size or age rules are set; they can only be checked once attributes are read. */
+    public boolean hasAttributeRules() {
+        return maxSize != Long.MAX_VALUE || minSize >= 0 || newerThanNanos != Long.MIN_VALUE || olderThanNanos != Long.MAX_VALUE;
+    }
+
+    /**
+     * The same rules for the entries of a subfolder, whose relative names start below {@code folder}.
+     */
+    public EntryFilter under(String folder) {
+        if (folder == null || folder.isEmpty()) return this;
+        return new EntryFilter(spec, exclude, excludeFolders, include, maxSize, minSize, newerThanNanos, olderThanNanos,
+                prefix + slashes(folder) + "/");
+    }
+
+    /**
+     * Whether an entry is left out by its name alone, whatever its type; checked before reading attributes.
+     *
+     * @param relative path relative to the compared folder, with the platform separator
+     */
+    public boolean skipsName(String relative) {
+        if (exclude.isEmpty()) return false;
+        String path = prefix + slashes(relative);
+        return exclude.matches(name(path), path);
+    }
+
+    /**
+     * Whether an entry of the given type passes the name rules (not size and age, see {@link #acceptsAttributes}).
+     */
+    public boolean accepts(String relative, boolean directory) {
+        String path = prefix + slashes(relative);
+        String name = name(path);
+        if (exclude.matches(name, path)) return false;
+        if (directory) return !excludeFolders.matches(name, path);
+        return include.isEmpty() || include.matches(name, path);
+    }
+
+    /**
+     * Whether an entry passes the size and age rules; folders always do.
+     */
+    public boolean acceptsAttributes(boolean directory, long size, long modifiedNanos) {
+        if (directory) return true;
+        return size < maxSize && size > minSize
+                && (newerThanNanos == Long.MIN_VALUE || modifiedNanos > newerThanNanos)
+                && (olderThanNanos == Long.MAX_VALUE || modifiedNanos < olderThanNanos);
+    }
+
+    /**
+     * Whether a row stays: at least one side exists and passes the size and age rules.
+     */
+    public boolean keepsRow(FileInfo left, FileInfo right) {
+        return passes(left) || passes(right);
+    }
+
+    private boolean passes(FileInfo fi) {
+        return fi != null && acceptsAttributes(fi.isDirectory(), fi.getSize(), fi.getModifiedNanos());
+    }
+
+    /**
+     * Whether a relative path lies in, or is, an entry left out by name: any of its folders is excluded,
+     * or the entry itself is excluded whatever its type. For paths reported by file system events.
+     */
+    public boolean skipsPath(String relative) {
+        String rel = slashes(relative);
+        for (int sep = rel.indexOf('/'); sep >= 0; sep = rel.indexOf('/', sep + 1)) {
+            String folder = prefix + rel.substring(0, sep);
+            if (exclude.matches(name(folder), folder) || excludeFolders.matches(name(folder), folder)) return true;
+        }
+        return skipsName(relative);
+    }
+
+    /** Identifies the rules and scope, for caches of filtered results; empty for a filter without rules. */
+    String cacheKey() {
+        return isEmpty() ? "" : "\u0000" + spec + "\u0000" + prefix;
+    }
+
+    private static String slashes(String relative) {
+        return File.separatorChar == '/' ? relative : relative.replace(File.separatorChar, '/');
+    }
+
+    private static String name(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
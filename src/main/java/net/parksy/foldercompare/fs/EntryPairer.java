@@ -0,0 +1,83 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import net.parksy.foldercompare.model.ScanSnapshot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Pairs two scans that are already sorted by the same order with one linear two-pointer merge,
+ * instead of building a union set of names and looking each one up on both sides.
+ * <p>
+ * Inputs must be sorted by the given order, as {@link DirectoryScanner#scanDir} (case-insensitive name)
+ * and the recursive snapshots ({@link DirectoryScanner#RELATIVE_PATH_ORDER}) are.
+ */
+public final class EntryPairer {
+    private EntryPairer() {}
+
+    /**
+     * Receives each row of a merge as a pair of indices, -1 for a missing side.
+     * Returning false stops the merge.
+     */
+    @FunctionalInterface
+    public interface PairVisitor {
+        boolean visit(int leftIndex, int rightIndex);
+    }
+
+    /**
+     * Merges two sorted sequences of names. Each name is fetched once.
+     *
+     * @return false if the visitor stopped the merge
+     */
+    public static boolean merge(int leftCount, IntFunction<String> leftName,
+                                int rightCount, IntFunction<String> rightName,
+                                Comparator<String> order, PairVisitor visitor) {
+        int i = 0;
+        int j = 0;
+        String ln = leftCount > 0 ? leftName.apply(0) : null;
+        String rn = rightCount > 0 ? rightName.apply(0) : null;
+        while (ln != null || rn != null) {
+            int cmp = ln == null ? 1 : rn == null ? -1 : order.compare(ln, rn);
+            boolean go = cmp < 0 ? visitor.visit(i, -1)
+                    : cmp > 0 ? visitor.visit(-1, j)
+                    : visitor.visit(i, j);
+            if (!go) return false;
+            if (cmp <= 0) ln = ++i < leftCount ? leftName.apply(i) : null;
+            if (cmp >= 0) rn = ++j < rightCount ? rightName.apply(j) : null;
+        }
+        return true;
+    }
+
+    /**
+     * Pairs two {@link DirectoryScanner#scanDir} results by case-insensitive name.
+     */
+    public static List<PairedEntry> pair(Map<String, FileInfo> left, Map<String, FileInfo> right) {
+        FileInfo[] l = left.values().toArray(new FileInfo[0]);
+        FileInfo[] r = right.values().toArray(new FileInfo[0]);
+        List<PairedEntry> rows = new ArrayList<>(Math.max(l.length, r.length));
+        merge(l.length, i -> l[i].getName(), r.length, j -> r[j].getName(), String.CASE_INSENSITIVE_ORDER,
+                (i, j) -> rows.add(new PairedEntry(i < 0 ? null : l[i], j < 0 ? null : r[j])));
+        return rows;
+    }
+
+    /**
+     * Pairs two recursive snapshots by relative path; rows are index views into the snapshots.
+     */
+    public static List<PairedEntry> pair(ScanSnapshot left, ScanSnapshot right) {
+        List<PairedEntry> rows = new ArrayList<>(Math.max(left.count(), right.count()));
+        merge(left, right, (i, j) -> rows.add(PairedEntry.of(left, i, right, j)));
+        return rows;
+    }
+
+    /**
+     * Merges two recursive snapshots in {@link DirectoryScanner#RELATIVE_PATH_ORDER}.
+     */
+    public static boolean merge(ScanSnapshot left, ScanSnapshot right, PairVisitor visitor) {
+        return merge(left.count(), left::name, right.count(), right::name, DirectoryScanner.RELATIVE_PATH_ORDER, visitor);
+    }
+}
@@ -1,41 +1,248 @@
 package net.parksy.foldercompare.fs;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 public final class FileOperations {
     private FileOperations() {}
 
+    /** Bytes copied between two cancellation checks. */
+    private static final long COPY_CHUNK_SIZE = 8L * 1024 * 1024;
+
+    /** Suffix of the hidden file a copy is written to before it replaces the destination. */
+    private static final String PARTIAL_SUFFIX = ".part";
+
     public static void copyRecursive(Path src, Path dst) throws IOException {
-        if (Files.isDirectory(src)) {
-            Files.createDirectories(dst);
+        copyRecursive(src, dst, new TransferProgress());
+    }
+
+    /**
+     * Copies a file or directory tree, replacing existing files, reporting to the given progress and
+     * stopping with {@link CancellationException} when it is cancelled. An existing file is only replaced
+     * once its copy is complete.
+     * Directories are created first, then files are copied concurrently by a {@link ParallelCopier};
+     * the call returns once the whole tree is copied.
+     */
+    public static void copyRecursive(Path src, Path dst, TransferProgress progress) throws IOException {
+        try (ParallelCopier copier = new ParallelCopier(progress)) {
+            copier.copy(src, dst);
+        }
+    }
+
+    public static void moveRecursive(Path src, Path dst) throws IOException {
+        moveRecursive(src, dst, new TransferProgress());
+    }
+
+    /**
+     * Moves a file or directory tree. Within one file store the whole subtree is renamed in a single step;
+     * if the destination directory already exists the source is merged into it entry by entry, each entry
+     * again renamed. Only cross-device moves (or renames the file system refuses) copy and delete.
+     * A directory renamed in one step is not counted in the progress.
+     */
+    public static void moveRecursive(Path src, Path dst, TransferProgress progress) throws IOException {
+        progress.checkCancelled();
+        if (sameFileStore(src, dst)) {
+            moveWithinStore(src, dst, progress);
+        } else {
+            copyRecursive(src, dst, progress);
+            deleteRecursive(src);
+        }
+    }
+
+    private static void moveWithinStore(Path src, Path dst, TransferProgress progress) throws IOException {
+        progress.checkCancelled();
+        BasicFileAttributes attrs = Files.readAttributes(src, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (attrs.isDirectory() && Files.isDirectory(dst, LinkOption.NOFOLLOW_LINKS)) {
             try (var stream = Files.list(src)) {
                 for (Path child : (Iterable<Path>) stream::iterator) {
-                    copyRecursive(child, dst.resolve(child.getFileName().toString()));
+                    moveWithinStore(child, dst.resolve(child.getFileName().toString()), progress);
                 }
             }
-        } else {
-            Files.createDirectories(dst.getParent());
-            Files.copy(src, dst, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(src);
+            return;
+        }
+        Files.createDirectories(dst.getParent());
+        try {
+            rename(src, dst);
+        } catch (IOException ex) {
+            // e.g. a bind mount of the same device, or a non-empty directory in the way
+            copyRecursive(src, dst, progress);
+            deleteRecursive(src);
+            return;
+        }
+        if (!attrs.isDirectory()) {
+            progress.addBytes(attrs.size());
+            progress.fileDone();
         }
     }
 
-    public static void moveRecursive(Path src, Path dst) throws IOException {
-        copyRecursive(src, dst);
-        deleteRecursive(src);
+    private static void rename(Path src, Path dst) throws IOException {
+        try {
+            Files.move(src, dst, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(src, dst, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Whether {@code dst}, or its nearest existing ancestor, is on the same file store as {@code src}.
+     */
+    static boolean sameFileStore(Path src, Path dst) {
+        try {
+            Path existing = dst.toAbsolutePath();
+            while (existing != null && !Files.exists(existing, LinkOption.NOFOLLOW_LINKS)) {
+                existing = existing.getParent();
+            }
+            return existing != null && Files.getFileStore(src).equals(Files.getFileStore(existing));
+        } catch (IOException ex) {
+            return false;
+        }
     }
 
     public static void deleteRecursive(Path root) throws IOException {
+        deleteRecursive(root, new TransferProgress());
+    }
+
+    /**
+     * Deletes a file or directory tree with a {@link BulkDeleter}, counting each deleted file.
+     * Deletion continues past entries that cannot be removed; they are reported together afterwards.
+     *
+     * @throws IOException listing the entries that could not be deleted, each attached as suppressed
+     */
+    public static void deleteRecursive(Path root, TransferProgress progress) throws IOException {
+        BulkDeleter.Result result = BulkDeleter.delete(root, progress);
+        if (result.isComplete()) return;
+        Map.Entry<Path, IOException> first = result.failures().entrySet().iterator().next();
+        IOException ex = new IOException(result.failures().size() == 1
+                ? "Could not delete " + first.getKey() + ": " + first.getValue().getMessage()
+                : "Could not delete " + result.failures().size() + " entries, first " + first.getKey()
+                        + ": " + first.getValue().getMessage());
+        result.failures().values().forEach(ex::addSuppressed);
+        throw ex;
+    }
+
+    /**
+     * Deletes the entries under {@code target} that have no entry of the same name under {@code source},
+     * so that a folder copied over an existing one ends up with the same entries. A folder missing on the
+     * source side is deleted whole. Entries that cannot be deleted are reported together afterwards, as by
+     * {@link #deleteRecursive(Path, TransferProgress)}.
+     */
+    public static void deleteExtras(Path source, Path target, TransferProgress progress) throws IOException {
+        List<Path> extras = new ArrayList<>();
+        Files.walkFileTree(target, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                progress.checkCancelled();
+                if (dir.equals(target) || Files.isDirectory(source.resolve(target.relativize(dir)))) {
+                    return FileVisitResult.CONTINUE;
+                }
+                extras.add(dir);
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!Files.exists(source.resolve(target.relativize(file)), LinkOption.NOFOLLOW_LINKS)) {
+                    extras.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        IOException failure = null;
+        for (Path extra : extras) {
+            measure(extra, progress);
+            try {
+                deleteRecursive(extra, progress);
+            } catch (IOException ex) {
+                if (failure == null) failure = ex;
+                else failure.addSuppressed(ex);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Adds the number of regular files and their total size under {@code root} to the progress totals.
+     */
+    public static void measure(Path root, TransferProgress progress) throws IOException {
         if (!Files.exists(root)) return;
-        if (Files.isDirectory(root)) {
-            try (var stream = Files.list(root)) {
-                for (Path child : (Iterable<Path>) stream::iterator) {
-                    deleteRecursive(child);
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                progress.checkCancelled();
+                progress.addTotals(1, attrs.isRegularFile() ? attrs.size() : 0);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Copies one regular file with zero-copy {@link FileChannel#transferTo} in chunks, checking for cancellation
+     * between chunks. A large file that already exists at the destination is updated in place by {@link DeltaCopy}.
+     * Otherwise the copy is written next to the destination and moved over it once complete, so a cancelled or
+     * failed copy leaves an existing destination as it was. Copying a file onto itself does nothing.
+     */
+    static void copyFile(Path src, Path dst, TransferProgress progress) throws IOException {
+        BasicFileAttributes existing = readAttributesOrNull(dst);
+        if (existing != null && Files.isSameFile(src, dst)) {
+            // Same folder on both sides, or reached through a link: the destination already is the source
+            progress.addBytes(existing.size());
+            progress.fileDone();
+            return;
+        }
+        if (existing != null && DeltaCopy.applies(Files.size(src), existing.isRegularFile())) {
+            DeltaCopy.update(src, dst, progress);
+            return;
+        }
+        Path tmp = dst.resolveSibling("." + dst.getFileName() + PARTIAL_SUFFIX);
+        boolean complete = false;
+        try {
+            try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = in.size();
+                long pos = 0;
+                while (pos < size) {
+                    progress.checkCancelled();
+                    long n = in.transferTo(pos, Math.min(COPY_CHUNK_SIZE, size - pos), out);
+                    if (n <= 0) break; // source shrank while copying
+                    pos += n;
+                    progress.addBytes(n);
                 }
             }
+            rename(tmp, dst);
+            complete = true;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        progress.fileDone();
+    }
+
+    private static BasicFileAttributes readAttributesOrNull(Path p) {
+        try {
+            return Files.readAttributes(p, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            return null;
         }
-        Files.deleteIfExists(root);
     }
 }
@@ -0,0 +1,197 @@
+package net.parksy.foldercompare.fs;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches both compared folders and reports which rows changed, so the table can be patched
+ * instead of rescanned. Bursts of events are coalesced: a batch is delivered once the folders have
+ * been quiet for the coalescing delay (or after the maximum delay while writes keep coming).
+ * <p>
+ * Reported names are row names: relative paths in recursive mode (with every ancestor folder, whose
+ * subtree status changed too), otherwise the top-level entry the change happened in. When the
+ * operating system drops events ({@code OVERFLOW}) the watcher asks for a full rescan instead.
+ * Folders an {@link EntryFilter} excludes are not watched, and events for excluded names are ignored.
+ * Callbacks run on the watcher thread.
+ */
+public final class FolderWatcher implements AutoCloseable {
+    private final Path leftRoot;
+    private final Path rightRoot;
+    private final boolean recursive;
+    private final long coalesceMillis;
+    private final long maxDelayMillis;
+    private final Consumer<Set<String>> onChange;
+    private final Runnable onOverflow;
+    private final EntryFilter filter;
+    private final WatchService service;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    /**
+     * @param onChange   receives the names of rows to re-read
+     * @param onOverflow called when events were lost and only a full rescan is reliable
+     */
+    public FolderWatcher(Path leftRoot, Path rightRoot, boolean recursive, long coalesceMillis, long maxDelayMillis,
+                         Consumer<Set<String>> onChange, Runnable onOverflow) throws IOException {
+        this(leftRoot, rightRoot, recursive, EntryFilter.NONE, coalesceMillis, maxDelayMillis, onChange, onOverflow);
+    }
+
+    public FolderWatcher(Path leftRoot, Path rightRoot, boolean recursive, EntryFilter filter, long coalesceMillis,
+                         long maxDelayMillis, Consumer<Set<String>> onChange, Runnable onOverflow) throws IOException {
+        this.filter = filter;
+        this.leftRoot = leftRoot.toAbsolutePath().normalize();
+        this.rightRoot = rightRoot.toAbsolutePath().normalize();
+        this.recursive = recursive;
+        this.coalesceMillis = coalesceMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.onChange = onChange;
+        this.onOverflow = onOverflow;
+        this.service = this.leftRoot.getFileSystem().newWatchService();
+        try {
+            for (Path root : List.of(this.leftRoot, this.rightRoot)) {
+                register(root, recursive ? Integer.MAX_VALUE : 1, null);
+            }
+        } catch (IOException ex) {
+            service.close();
+            throw ex;
+        }
+        this.thread = new Thread(this::run, "folder-watch");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        try {
+            service.close();
+        } catch (IOException ignored) {
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * Registers {@code dir} and its subfolders down to {@code depth} levels below it. Entries found below a folder
+     * that appeared after the watch started are added to {@code found}, since their own events were missed.
+     */
+    private void register(Path dir, int depth, Set<String> found) throws IOException {
+        // The walk hands folders at its maximum depth to visitFile, so walk one level further
+        int walkDepth = depth == Integer.MAX_VALUE ? depth : depth + 1;
+        Files.walkFileTree(dir, Set.of(), walkDepth, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                if (excluded(d, true)) return FileVisitResult.SKIP_SUBTREE;
+                keys.put(d.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), d);
+                if (found != null) addRowNames(d, found);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (found != null && !attrs.isDirectory() && !excluded(file, false)) addRowNames(file, found);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey first = service.take();
+                Set<String> changed = new HashSet<>();
+                boolean overflow = drain(first, changed);
+                long deadline = System.currentTimeMillis() + maxDelayMillis;
+                while (System.currentTimeMillis() < deadline) {
+                    WatchKey next = service.poll(coalesceMillis, TimeUnit.MILLISECONDS);
+                    if (next == null) break; // quiet
+                    overflow |= drain(next, changed);
+                }
+                if (overflow) {
+                    onOverflow.run();
+                } else if (!changed.isEmpty()) {
+                    onChange.accept(changed);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // closed
+        }
+    }
+
+    /**
+     * Collects the row names of one key's events; returns true if events were lost.
+     */
+    private boolean drain(WatchKey key, Set<String> changed) {
+        boolean overflow = false;
+        Path dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            if (dir == null) continue;
+            Path child = dir.resolve((Path) event.context());
+            if (excluded(child, false)) continue;
+            addRowNames(child, changed);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                int depth = recursive ? Integer.MAX_VALUE : (dir.equals(leftRoot) || dir.equals(rightRoot) ? 0 : -1);
+                if (depth >= 0) {
+                    try {
+                        register(child, depth, recursive ? changed : null);
+                    } catch (IOException ex) {
+                        overflow = true; // cannot follow the new folder: be safe
+                    }
+                }
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+        return overflow;
+    }
+
+    /**
+     * Whether the filter leaves out {@code path} by name, or as a folder when {@code folder} is set.
+     * When one compared folder lies inside the other, a path below both is left out only if both sides leave it out.
+     */
+    private boolean excluded(Path path, boolean folder) {
+        if (filter.isEmpty()) return false;
+        for (Path root : List.of(leftRoot, rightRoot)) {
+            if (!path.startsWith(root)) continue;
+            if (path.equals(root)) return false;
+            String rel = root.relativize(path).toString();
+            if (!filter.skipsPath(rel) && (!folder || filter.accepts(rel, true))) return false;
+        }
+        return true;
+    }
+
+    // A path below both roots (one compared folder inside the other) is a row on each side, under a different name
+    private void addRowNames(Path path, Set<String> changed) {
+        RowPatcher.addRowNames(leftRoot, path, recursive, changed);
+        RowPatcher.addRowNames(rightRoot, path, recursive, changed);
+    }
+}
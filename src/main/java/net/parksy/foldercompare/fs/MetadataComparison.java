@@ -0,0 +1,27 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Compares size and modification time only; never reads file contents.
+ * Different sizes always prove a difference. Matching sizes are only decisive when this is the
+ * last tier ({@code conclusive}), in which case the modification times decide, as in {@code PairedEntry.isDifferent}.
+ */
+public final class MetadataComparison implements ComparisonStrategy {
+    private final boolean conclusive;
+
+    public MetadataComparison(boolean conclusive) {
+        this.conclusive = conclusive;
+    }
+
+    @Override
+    public CompareStatus compareFiles(Path a, BasicFileAttributes aa, Path b, BasicFileAttributes ab) {
+        if (aa.size() != ab.size()) return CompareStatus.DIFFERENT;
+        if (aa.size() == 0) return CompareStatus.EQUAL;
+        if (!conclusive) return CompareStatus.PENDING;
+        return aa.lastModifiedTime().equals(ab.lastModifiedTime()) ? CompareStatus.EQUAL : CompareStatus.DIFFERENT;
+    }
+}
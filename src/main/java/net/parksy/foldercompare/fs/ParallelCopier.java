@@ -0,0 +1,198 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies a directory tree in two phases: the whole directory structure is created first by a single walk,
+ * then the files are copied concurrently. Small and large files run on separate bounded pools, so a few
+ * big files cannot starve the many small ones and many small files cannot flood a disk with large reads.
+ * <p>
+ * The first failure or a cancellation stops files that have not started yet; files in flight stop at their
+ * next chunk. The copier owns its threads and must be closed.
+ */
+public final class ParallelCopier implements AutoCloseable {
+    private final TransferProgress progress;
+    private final long largeFileThreshold;
+    private final ExecutorService smallFiles;
+    private final ExecutorService largeFiles;
+    private volatile boolean failed;
+
+    private record FileCopy(Path src, Path dst, long size) {}
+
+    public ParallelCopier(TransferProgress progress) {
+        this(progress, Constants.COPY_SMALL_FILE_THREADS, Constants.COPY_LARGE_FILE_THREADS,
+                Constants.COPY_LARGE_FILE_THRESHOLD);
+    }
+
+    /**
+     * @param smallThreads       concurrent copies of files below the threshold
+     * @param largeThreads       concurrent copies of files at or above the threshold
+     * @param largeFileThreshold size in bytes from which a file counts as large
+     */
+    public ParallelCopier(TransferProgress progress, int smallThreads, int largeThreads, long largeFileThreshold) {
+        this.progress = progress;
+        this.largeFileThreshold = largeFileThreshold;
+        this.smallFiles = newPool("copy-small-", smallThreads);
+        this.largeFiles = newPool("copy-large-", largeThreads);
+    }
+
+    private static ExecutorService newPool(String prefix, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Copies {@code src} (file or directory) to {@code dst}, replacing existing files, and returns when every
+     * file is done.
+     *
+     * @throws CancellationException if the progress was cancelled
+     * @throws IOException           the first copy failure; later ones are attached as suppressed
+     */
+    public void copy(Path src, Path dst) throws IOException {
+        progress.checkCancelled();
+        if (!Files.isDirectory(src)) {
+            Files.createDirectories(dst.getParent());
+            FileOperations.copyFile(src, dst, progress);
+            return;
+        }
+
+        List<FileCopy> files = createDirectories(src, dst);
+        List<Future<?>> pending = new ArrayList<>(files.size());
+        for (FileCopy f : files) {
+            ExecutorService pool = f.size() >= largeFileThreshold ? largeFiles : smallFiles;
+            pending.add(pool.submit(() -> copyOne(f)));
+        }
+        await(pending);
+    }
+
+    /**
+     * Copies several files or directory trees as one batch: every directory structure is created first, then all
+     * files are copied concurrently. Unlike {@link #copy}, a failure only affects its own pair.
+     *
+     * @return for each pair in input order, null if it was copied, otherwise the first failure or a
+     *         {@link CancellationException}
+     */
+    public List<Throwable> copyEach(List<Path> sources, List<Path> targets) {
+        Throwable[] failures = new Throwable[sources.size()];
+        List<List<Future<?>>> pending = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            List<Future<?>> futures = new ArrayList<>();
+            pending.add(futures);
+            Path src = sources.get(i);
+            Path dst = targets.get(i);
+            try {
+                progress.checkCancelled();
+                List<FileCopy> files;
+                if (Files.isDirectory(src)) {
+                    files = createDirectories(src, dst);
+                } else {
+                    Files.createDirectories(dst.getParent());
+                    files = List.of(new FileCopy(src, dst, Files.size(src)));
+                }
+                for (FileCopy f : files) {
+                    ExecutorService pool = f.size() >= largeFileThreshold ? largeFiles : smallFiles;
+                    futures.add(pool.submit(() -> {
+                        progress.checkCancelled();
+                        FileOperations.copyFile(f.src(), f.dst(), progress);
+                        return null;
+                    }));
+                }
+            } catch (IOException | UncheckedIOException | CancellationException ex) {
+                failures[i] = ex;
+            }
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                await(pending.get(i));
+            } catch (IOException | CancellationException ex) {
+                if (failures[i] == null) failures[i] = ex;
+            }
+        }
+        return Arrays.asList(failures);
+    }
+
+    /**
+     * Phase one: mirrors the directory structure under {@code dst} and collects the files to copy.
+     */
+    private List<FileCopy> createDirectories(Path src, Path dst) throws IOException {
+        List<FileCopy> files = new ArrayList<>();
+        Files.walkFileTree(src, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                progress.checkCancelled();
+                Files.createDirectories(dst.resolve(src.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                files.add(new FileCopy(file, dst.resolve(src.relativize(file).toString()), attrs.size()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private Void copyOne(FileCopy f) throws IOException {
+        if (failed) return null;
+        try {
+            FileOperations.copyFile(f.src(), f.dst(), progress);
+        } catch (IOException | UncheckedIOException ex) {
+            failed = true;
+            throw ex;
+        }
+        return null;
+    }
+
+    private void await(List<Future<?>> pending) throws IOException {
+        IOException error = null;
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failed = true;
+                progress.cancel();
+                throw new CancellationException("Interrupted while copying");
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof CancellationException) continue;
+                IOException io = cause instanceof IOException e ? e
+                        : cause instanceof UncheckedIOException u ? u.getCause()
+                        : new IOException(cause);
+                if (error == null) error = io; else error.addSuppressed(io);
+            }
+        }
+        if (error != null) throw error;
+        progress.checkCancelled();
+    }
+
+    @Override
+    public void close() {
+        smallFiles.shutdownNow();
+        largeFiles.shutdownNow();
+    }
+}
@@ -0,0 +1,223 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Links files that exist on only one side to files with the same content under another name or
+ * path on the other side (renamed or moved files), so they need not be transferred again.
+ * <p>
+ * Candidates are first bucketed by size, which needs no reads and leaves most files without a partner.
+ * Only files sharing a size with the other side have their head and tail hashed, and only those
+ * still matching then have their full content hashed (through the {@link ContentHashCache}).
+ * Reads run concurrently through {@link BoundedIo}.
+ */
+public final class RenameDetector {
+    private RenameDetector() {}
+
+    /** A file present on one side only; the name is relative to that side's root. */
+    public record Candidate(String name, long size) {}
+
+    /** Two files, one per side, with identical content. */
+    public record Match(String leftName, String rightName) {}
+
+    /**
+     * Finds one-to-one content matches between the left and right candidates. Where several files share
+     * the same content, files with the same file name are paired first, the rest in order.
+     *
+     * @param cache     digest cache for the full hashes, may be null
+     * @param cancelled polled before each file is hashed; when true the matches found so far are returned
+     */
+    public static List<Match> detect(Path leftRoot, List<Candidate> left, Path rightRoot, List<Candidate> right,
+                                     ContentHashCache cache, BooleanSupplier cancelled) {
+        List<Match> matches = new ArrayList<>();
+
+        // 1. Equal sizes only, found by sorting both sides instead of hashing into a map
+        List<Candidate> ls = new ArrayList<>(left);
+        List<Candidate> rs = new ArrayList<>(right);
+        ls.sort(Comparator.comparingLong(Candidate::size));
+        rs.sort(Comparator.comparingLong(Candidate::size));
+        List<Candidate> lBucketed = new ArrayList<>();
+        List<Candidate> rBucketed = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < ls.size() && j < rs.size()) {
+            long li = ls.get(i).size();
+            long rj = rs.get(j).size();
+            if (li < rj) { i++; continue; }
+            if (li > rj) { j++; continue; }
+            int iEnd = i;
+            while (iEnd < ls.size() && ls.get(iEnd).size() == li) iEnd++;
+            int jEnd = j;
+            while (jEnd < rs.size() && rs.get(jEnd).size() == li) jEnd++;
+            if (li >= Constants.RENAME_MIN_SIZE) {
+                lBucketed.addAll(ls.subList(i, iEnd));
+                rBucketed.addAll(rs.subList(j, jEnd));
+            }
+            i = iEnd;
+            j = jEnd;
+        }
+        if (lBucketed.isEmpty() || cancelled.getAsBoolean()) return matches;
+
+        // 2. Head and tail, which settles files small enough to be read whole
+        Map<Object, Group> partial = group(leftRoot, lBucketed, rightRoot, rBucketed, RenameDetector::partialHash, cancelled);
+        if (cancelled.getAsBoolean()) return matches;
+
+        // 3. Full content for the rest
+        List<Candidate> lFull = new ArrayList<>();
+        List<Candidate> rFull = new ArrayList<>();
+        for (Group g : partial.values()) {
+            if (g.left.isEmpty() || g.right.isEmpty()) continue;
+            if (g.left.get(0).size() <= 2L * Constants.RENAME_PARTIAL_HASH_BYTES) {
+                pair(g, matches);
+            } else {
+                lFull.addAll(g.left);
+                rFull.addAll(g.right);
+            }
+        }
+        if (!lFull.isEmpty() && !cancelled.getAsBoolean()) {
+            ContentHashCache digests = cache != null ? cache : new ContentHashCache(lFull.size() + rFull.size());
+            Map<Object, Group> full = group(leftRoot, lFull, rightRoot, rFull, p -> fullHash(p, digests), cancelled);
+            if (cancelled.getAsBoolean()) return matches;
+            for (Group g : full.values()) {
+                if (!g.left.isEmpty() && !g.right.isEmpty()) pair(g, matches);
+            }
+        }
+        matches.sort(Comparator.comparing(Match::leftName));
+        return matches;
+    }
+
+    private static final class Group {
+        final List<Candidate> left = new ArrayList<>();
+        final List<Candidate> right = new ArrayList<>();
+    }
+
+    private interface Hasher {
+        byte[] hash(Path file) throws IOException;
+    }
+
+    /**
+     * Hashes both sides and groups them by size and hash; unreadable files, and files not yet hashed when
+     * {@code cancelled} turned true, are left out.
+     */
+    private static Map<Object, Group> group(Path leftRoot, List<Candidate> left, Path rightRoot, List<Candidate> right,
+                                            Hasher hasher, BooleanSupplier cancelled) {
+        Map<Object, Group> groups = new LinkedHashMap<>();
+        List<byte[]> lh = BoundedIo.mapAll(leftRoot, left,
+                c -> cancelled.getAsBoolean() ? null : hashOrNull(hasher, leftRoot.resolve(c.name())));
+        List<byte[]> rh = BoundedIo.mapAll(rightRoot, right,
+                c -> cancelled.getAsBoolean() ? null : hashOrNull(hasher, rightRoot.resolve(c.name())));
+        for (int k = 0; k < left.size(); k++) {
+            if (lh.get(k) == null) continue;
+            groups.computeIfAbsent(key(left.get(k), lh.get(k)), x -> new Group()).left.add(left.get(k));
+        }
+        for (int k = 0; k < right.size(); k++) {
+            if (rh.get(k) == null) continue;
+            Group g = groups.get(key(right.get(k), rh.get(k)));
+            if (g != null) g.right.add(right.get(k)); // content without a left partner needs no group
+        }
+        return groups;
+    }
+
+    private static Object key(Candidate c, byte[] hash) {
+        return List.of(c.size(), ByteBuffer.wrap(hash));
+    }
+
+    private static byte[] hashOrNull(Hasher hasher, Path file) {
+        try {
+            return hasher.hash(file);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Pairs identical files, same file name first.
+     */
+    private static void pair(Group g, List<Match> matches) {
+        // Indexes into g.right per file name, each queue consumed from its head; a bucket of many
+        // same-size files must not cost a list removal per match
+        Map<String, ArrayDeque<Integer>> rightByFileName = new HashMap<>();
+        for (int k = 0; k < g.right.size(); k++) {
+            rightByFileName.computeIfAbsent(fileName(g.right.get(k).name()), x -> new ArrayDeque<>()).add(k);
+        }
+        boolean[] paired = new boolean[g.right.size()];
+        List<Candidate> unpairedLeft = new ArrayList<>();
+        for (Candidate l : g.left) {
+            ArrayDeque<Integer> same = rightByFileName.get(fileName(l.name()));
+            if (same != null && !same.isEmpty()) {
+                int k = same.poll();
+                paired[k] = true;
+                matches.add(new Match(l.name(), g.right.get(k).name()));
+            } else {
+                unpairedLeft.add(l);
+            }
+        }
+        int next = 0;
+        for (Candidate l : unpairedLeft) {
+            while (next < paired.length && paired[next]) next++;
+            if (next == paired.length) break;
+            matches.add(new Match(l.name(), g.right.get(next++).name()));
+        }
+    }
+
+    private static String fileName(String relative) {
+        Path p = Path.of(relative).getFileName();
+        return p == null ? relative : p.toString();
+    }
+
+    private static byte[] partialHash(Path file) throws IOException {
+        MessageDigest md = sha256();
+        int chunk = Constants.RENAME_PARTIAL_HASH_BYTES;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(chunk, Math.max(1, size)));
+            readAt(ch, 0, buf, md);
+            if (size > chunk) {
+                buf.clear();
+                readAt(ch, Math.max(chunk, size - chunk), buf, md);
+            }
+        }
+        return md.digest();
+    }
+
+    private static void readAt(FileChannel ch, long position, ByteBuffer buf, MessageDigest md) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) break;
+        }
+        buf.flip();
+        md.update(buf);
+    }
+
+    private static byte[] fullHash(Path file, ContentHashCache cache) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        return cache.digest(file, attrs);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
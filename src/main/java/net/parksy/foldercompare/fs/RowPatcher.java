@@ -0,0 +1,206 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Updates individual rows of a displayed comparison in place, for changes reported by a
+ * {@link FolderWatcher} or made by a transfer, instead of rescanning both folders.
+ * <p>
+ * Rows are kept in the order the scanners emit them: case-insensitive name for one level,
+ * {@link DirectoryScanner#RELATIVE_PATH_ORDER} for whole trees.
+ */
+public final class RowPatcher {
+    private RowPatcher() {}
+
+    /** Fresh attributes of one row name on both sides; a null side no longer exists. */
+    public record Patch(String name, FileInfo left, FileInfo right) {}
+
+    /**
+     * Adds the names of the rows affected by a change at {@code path} below {@code root}: in recursive mode its
+     * relative path and every ancestor folder (whose subtree status may have changed), otherwise the top-level entry
+     * it lies in. Adds nothing for paths outside {@code root} or the root itself.
+     */
+    public static void addRowNames(Path root, Path path, boolean recursive, Collection<String> out) {
+        if (!path.startsWith(root) || path.equals(root)) return;
+        Path rel = root.relativize(path);
+        if (!recursive) {
+            out.add(rel.getName(0).toString());
+            return;
+        }
+        String name = rel.toString();
+        out.add(name);
+        for (int sep = name.lastIndexOf(File.separatorChar); sep > 0; sep = name.lastIndexOf(File.separatorChar, sep - 1)) {
+            out.add(name.substring(0, sep));
+        }
+    }
+
+    /**
+     * Adds the relative path of every entry below {@code folder} on disk, for rows a transfer may have created.
+     * Does file I/O; call off the UI thread.
+     *
+     * @throws IOException if the folder could not be listed completely; names found before the failure are added
+     */
+    public static void addSubtreeNames(Path root, String folder, Collection<String> out) throws IOException {
+        Path dir = root.resolve(folder);
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.forEach(p -> {
+                if (!p.equals(dir)) out.add(root.relativize(p).toString());
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Names of the rows below {@code folder}, which follow it directly in recursive row order.
+     */
+    public static List<String> rowsBelow(List<PairedEntry> rows, String folder) {
+        String prefix = folder + File.separatorChar;
+        int i = indexOf(rows, folder, DirectoryScanner.RELATIVE_PATH_ORDER);
+        List<String> names = new ArrayList<>();
+        for (int k = i >= 0 ? i + 1 : -i - 1; k < rows.size(); k++) {
+            String name = key(rows.get(k));
+            if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) break;
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * Reads the current attributes of the given row names. Does file I/O; call off the UI thread.
+     */
+    public static List<Patch> restat(Path leftRoot, Path rightRoot, Collection<String> names) {
+        return restat(leftRoot, rightRoot, names, EntryFilter.NONE);
+    }
+
+    /**
+     * Like {@link #restat(Path, Path, Collection)}; names the filter leaves out get a patch without sides,
+     * which removes their row if there is one. Names inside excluded folders are not stat'ed.
+     */
+    public static List<Patch> restat(Path leftRoot, Path rightRoot, Collection<String> names, EntryFilter filter) {
+        List<Patch> patches = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (filter.skipsPath(name)) {
+                patches.add(new Patch(name, null, null));
+                continue;
+            }
+            FileInfo l = accepted(DirectoryScanner.readInfo(leftRoot.resolve(name), name), filter);
+            FileInfo r = accepted(DirectoryScanner.readInfo(rightRoot.resolve(name), name), filter);
+            patches.add(filter.keepsRow(l, r) ? new Patch(name, l, r) : new Patch(name, null, null));
+        }
+        return patches;
+    }
+
+    private static FileInfo accepted(FileInfo fi, EntryFilter filter) {
+        return fi != null && filter.accepts(fi.getName(), fi.isDirectory()) ? fi : null;
+    }
+
+    /**
+     * Replaces, inserts or removes the rows named by {@code patches}, keeping {@code rows} sorted.
+     * In recursive mode the rows below a folder that disappeared from one side lose that side too.
+     * A side whose existing entry differs from the patch name only by case is kept, since the patch did not read it.
+     *
+     * @return the new rows, which still need comparing
+     */
+    public static List<PairedEntry> apply(List<PairedEntry> rows, Collection<Patch> patches, boolean recursive) {
+        Comparator<String> order = recursive ? DirectoryScanner.RELATIVE_PATH_ORDER : String.CASE_INSENSITIVE_ORDER;
+        Map<String, PairedEntry> changed = new TreeMap<>(order);
+        for (Patch p : patches) {
+            int i = indexOf(rows, p.name(), order);
+            PairedEntry old = i >= 0 ? rows.get(i) : null;
+            FileInfo oldLeft = old == null ? null : old.getLeft();
+            FileInfo oldRight = old == null ? null : old.getRight();
+            FileInfo l = side(oldLeft, p.left(), p.name());
+            FileInfo r = side(oldRight, p.right(), p.name());
+
+            int next;
+            if (l == null && r == null) {
+                if (i < 0) continue;
+                rows.remove(i);
+                changed.remove(p.name());
+                next = i;
+            } else {
+                PairedEntry pe = new PairedEntry(l, r);
+                if (i >= 0) {
+                    rows.set(i, pe);
+                    next = i + 1;
+                } else {
+                    rows.add(-i - 1, pe);
+                    next = -i;
+                }
+                changed.put(p.name(), pe);
+            }
+            if (recursive && old != null) {
+                boolean lostLeft = isDirectory(oldLeft) && !isDirectory(l);
+                boolean lostRight = isDirectory(oldRight) && !isDirectory(r);
+                if (lostLeft || lostRight) {
+                    dropDescendants(rows, next, p.name(), lostLeft, lostRight, changed);
+                }
+            }
+        }
+        return new ArrayList<>(changed.values());
+    }
+
+    private static FileInfo side(FileInfo old, FileInfo fresh, String name) {
+        return old != null && !old.getName().equals(name) ? old : fresh;
+    }
+
+    private static boolean isDirectory(FileInfo fi) {
+        return fi != null && fi.isDirectory();
+    }
+
+    // Descendants of a folder follow it directly, since the separator sorts first
+    private static void dropDescendants(List<PairedEntry> rows, int from, String folder, boolean left, boolean right,
+                                        Map<String, PairedEntry> changed) {
+        String prefix = folder + File.separatorChar;
+        int i = from;
+        while (i < rows.size()) {
+            PairedEntry pe = rows.get(i);
+            String name = key(pe);
+            if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) break;
+            FileInfo l = left ? null : pe.getLeft();
+            FileInfo r = right ? null : pe.getRight();
+            if (l == null && r == null) {
+                rows.remove(i);
+                changed.remove(name);
+            } else {
+                PairedEntry replacement = new PairedEntry(l, r);
+                rows.set(i++, replacement);
+                changed.put(name, replacement);
+            }
+        }
+    }
+
+    /** Binary search by row name; returns {@code -(insertionPoint + 1)} when absent. */
+    static int indexOf(List<PairedEntry> rows, String name, Comparator<String> order) {
+        int lo = 0;
+        int hi = rows.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = order.compare(key(rows.get(mid)), name);
+            if (cmp < 0) lo = mid + 1;
+            else if (cmp > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private static String key(PairedEntry pe) {
+        return (pe.hasLeft() ? pe.getLeft() : pe.getRight()).getName();
+    }
+}
@@ -0,0 +1,67 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.SplittableRandom;
+
+/**
+ * Compares a few blocks of each file: the head, the tail and {@code blocks} pseudo-random blocks in between.
+ * The random offsets are seeded by the file size, so both sides (and every run) sample the same places.
+ * A differing block proves a difference; files small enough to be covered by the samples are compared in full.
+ * Otherwise matching samples are only decisive when this is the last tier ({@code conclusive}).
+ */
+public final class SampledComparison implements ComparisonStrategy {
+    private final int blockSize;
+    private final int blocks;
+    private final boolean conclusive;
+
+    public SampledComparison(int blockSize, int blocks, boolean conclusive) {
+        this.blockSize = blockSize;
+        this.blocks = blocks;
+        this.conclusive = conclusive;
+    }
+
+    @Override
+    public CompareStatus compareFiles(Path a, BasicFileAttributes aa, Path b, BasicFileAttributes ab) throws IOException {
+        long size = aa.size();
+        if (size != ab.size()) return CompareStatus.DIFFERENT;
+        if (size <= (long) blockSize * (blocks + 2)) {
+            // Sampling would read about as much as a full compare
+            return CompareUtil.mismatch(a, b) == -1L ? CompareStatus.EQUAL : CompareStatus.DIFFERENT;
+        }
+        ByteBuffer bufA = ByteBuffer.allocate(blockSize);
+        ByteBuffer bufB = ByteBuffer.allocate(blockSize);
+        try (FileChannel ca = FileChannel.open(a, StandardOpenOption.READ);
+             FileChannel cb = FileChannel.open(b, StandardOpenOption.READ)) {
+            if (!sameBlock(ca, cb, 0, bufA, bufB)) return CompareStatus.DIFFERENT;
+            if (!sameBlock(ca, cb, size - blockSize, bufA, bufB)) return CompareStatus.DIFFERENT;
+            SplittableRandom random = new SplittableRandom(size);
+            for (int i = 0; i < blocks; i++) {
+                long offset = random.nextLong(blockSize, size - 2L * blockSize + 1);
+                if (!sameBlock(ca, cb, offset, bufA, bufB)) return CompareStatus.DIFFERENT;
+            }
+        }
+        return conclusive ? CompareStatus.EQUAL : CompareStatus.PENDING;
+    }
+
+    private boolean sameBlock(FileChannel ca, FileChannel cb, long offset, ByteBuffer bufA, ByteBuffer bufB) throws IOException {
+        readFully(ca, offset, bufA);
+        readFully(cb, offset, bufB);
+        return bufA.mismatch(bufB) == -1;
+    }
+
+    private static void readFully(FileChannel ch, long offset, ByteBuffer buf) throws IOException {
+        buf.clear();
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, offset + buf.position());
+            if (n < 0) break; // file shrank; compare what was read
+        }
+        buf.flip();
+    }
+}
@@ -0,0 +1,171 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import net.parksy.foldercompare.model.ScanSnapshot;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Scans two folders and emits their paired rows in batches, already in final display order,
+ * so a consumer can append each batch as it arrives instead of waiting for the whole scan.
+ */
+public final class StreamingScanner {
+    private StreamingScanner() {}
+
+    /**
+     * Runs the scan on the calling thread.
+     * <p>
+     * Non-recursive scans first list only the names on both sides (cheap), pair them in sorted order
+     * and then read attributes batch by batch, so the first rows are delivered after a single batch
+     * of stat calls. The stat calls of a batch run concurrently through {@link BoundedIo}, which hides
+     * the per-call latency of network mounts. Recursive scans walk both trees concurrently and then emit the merged rows in batches.
+     *
+     * @param batchSize  number of rows per delivered batch
+     * @param sink       receives each batch; batches concatenate to the order refresh() has always shown
+     * @param cancelled  polled between batches; when true the scan stops without emitting further rows
+     */
+    public static void scan(String leftPath, String rightPath, boolean recursive, int batchSize,
+                            Consumer<List<PairedEntry>> sink, BooleanSupplier cancelled) {
+        scan(leftPath, rightPath, recursive, EntryFilter.NONE, batchSize, sink, cancelled);
+    }
+
+    /**
+     * Like {@link #scan(String, String, boolean, int, Consumer, BooleanSupplier)}, leaving out what the filter
+     * excludes. Names are checked before any stat call and excluded folders are not walked; size and age
+     * rules drop a row only when neither side passes.
+     */
+    public static void scan(String leftPath, String rightPath, boolean recursive, EntryFilter filter, int batchSize,
+                            Consumer<List<PairedEntry>> sink, BooleanSupplier cancelled) {
+        if (recursive) {
+            scanTrees(leftPath, rightPath, filter, batchSize, sink, cancelled);
+        } else {
+            scanLevel(leftPath, rightPath, filter, batchSize, sink, cancelled);
+        }
+    }
+
+    private static void scanLevel(String leftPath, String rightPath, EntryFilter filter, int batchSize,
+                                  Consumer<List<PairedEntry>> sink, BooleanSupplier cancelled) {
+        Path[] left = listChildren(leftPath, filter);
+        Path[] right = listChildren(rightPath, filter);
+
+        // Pair by name first, then read both sides of a batch of rows at once
+        List<int[]> pairs = new ArrayList<>(Math.max(left.length, right.length));
+        EntryPairer.merge(left.length, i -> left[i].getFileName().toString(),
+                right.length, j -> right[j].getFileName().toString(), String.CASE_INSENSITIVE_ORDER,
+                (i, j) -> pairs.add(new int[] {i, j}));
+
+        Batcher batcher = new Batcher(batchSize, sink, cancelled);
+        for (int from = 0; from < pairs.size(); from += batchSize) {
+            if (cancelled.getAsBoolean()) return;
+            List<int[]> chunk = pairs.subList(from, Math.min(pairs.size(), from + batchSize));
+            var leftInfos = BoundedIo.submitAll(Path.of(leftPath), chunk, ij -> readChild(left, ij[0]));
+            var rightInfos = BoundedIo.submitAll(Path.of(rightPath), chunk, ij -> readChild(right, ij[1]));
+            for (int k = 0; k < chunk.size(); k++) {
+                FileInfo l = accepted(leftInfos.get(k).join(), filter);
+                FileInfo r = accepted(rightInfos.get(k).join(), filter);
+                if (l == null && r == null) continue; // vanished since listing, or filtered out
+                if (!filter.keepsRow(l, r)) continue;
+                batcher.add(new PairedEntry(l, r));
+            }
+        }
+        batcher.flush();
+    }
+
+    private static FileInfo accepted(FileInfo fi, EntryFilter filter) {
+        return fi != null && filter.accepts(fi.getName(), fi.isDirectory()) ? fi : null;
+    }
+
+    private static FileInfo readChild(Path[] children, int index) {
+        return index < 0 ? null : DirectoryScanner.readInfo(children[index], children[index].getFileName().toString());
+    }
+
+    private static void scanTrees(String leftPath, String rightPath, EntryFilter filter, int batchSize,
+                                  Consumer<List<PairedEntry>> sink, BooleanSupplier cancelled) {
+        var leftScan = DirectoryScanner.snapshotTreeAsync(leftPath, filter);
+        var rightScan = DirectoryScanner.snapshotTreeAsync(rightPath, filter);
+        ScanSnapshot left = leftScan.join();
+        ScanSnapshot right = rightScan.join();
+
+        // Rows are index pairs into the snapshot columns
+        boolean attributeRules = filter.hasAttributeRules();
+        Batcher batcher = new Batcher(batchSize, sink, cancelled);
+        boolean finished = EntryPairer.merge(left, right, (i, j) -> {
+            if (batcher.isCancelledAtBoundary()) return false;
+            if (attributeRules && !passes(left, i, filter) && !passes(right, j, filter)) return true;
+            batcher.add(PairedEntry.of(left, i, right, j));
+            return true;
+        });
+        if (finished) batcher.flush();
+    }
+
+    private static boolean passes(ScanSnapshot snapshot, int i, EntryFilter filter) {
+        return i >= 0 && filter.acceptsAttributes(snapshot.isDirectory(i), snapshot.fileSize(i), snapshot.modifiedNanos(i));
+    }
+
+    /**
+     * Collects rows into batches and polls for cancellation only when a new batch starts.
+     */
+    private static final class Batcher {
+        private final int batchSize;
+        private final Consumer<List<PairedEntry>> sink;
+        private final BooleanSupplier cancelled;
+        private List<PairedEntry> batch;
+
+        Batcher(int batchSize, Consumer<List<PairedEntry>> sink, BooleanSupplier cancelled) {
+            this.batchSize = batchSize;
+            this.sink = sink;
+            this.cancelled = cancelled;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        boolean isCancelledAtBoundary() {
+            return batch.isEmpty() && cancelled.getAsBoolean();
+        }
+
+        void add(PairedEntry pe) {
+            batch.add(pe);
+            if (batch.size() >= batchSize) {
+                sink.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        void flush() {
+            if (!batch.isEmpty() && !cancelled.getAsBoolean()) {
+                sink.accept(batch);
+            }
+        }
+    }
+
+    /**
+     * Lists a folder's children without reading their attributes, sorted by name like scanDir.
+     * Names the filter excludes are dropped here, before anyone stats them.
+     */
+    private static Path[] listChildren(String pathText, EntryFilter filter) {
+        if (pathText == null || pathText.isBlank()) {
+            return new Path[0];
+        }
+        Path p = Path.of(pathText);
+        if (!Files.isDirectory(p)) {
+            return new Path[0];
+        }
+        List<Path> listed = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(p)) {
+            for (Path child : ds) {
+                if (!filter.skipsName(child.getFileName().toString())) listed.add(child);
+            }
+        } catch (IOException ignored) {
+        }
+        listed.sort(Comparator.comparing(Path::getFileName, (a, b) -> a.toString().compareToIgnoreCase(b.toString())));
+        return listed.toArray(new Path[0]);
+    }
+}
@@ -0,0 +1,255 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Turns a finished comparison into a plan that makes one side match the other, and carries it out as one batch.
+ * <p>
+ * The plan is computed from the rows alone, without file I/O, so it can be previewed before anything is touched.
+ * It runs in phases: folders are created parents first, files already on the target under another name
+ * ({@link CompareStatus#RELOCATED}) are renamed there, new and changed files are copied concurrently by one
+ * {@link ParallelCopier}, and finally orphans on the target are deleted, deepest first.
+ * Without recursion a differing folder is copied whole; when orphans are deleted, entries inside it that the
+ * source folder lacks are deleted too ({@link Type#PRUNE}), found by listing both folders when the plan runs.
+ * <p>
+ * Rows that cannot be planned safely are left alone and listed as skipped: a file on one side facing a folder
+ * on the other, and rows whose comparison is pending or failed.
+ */
+public final class SyncPlanner {
+    private SyncPlanner() {}
+
+    public enum Type {
+        CREATE_FOLDER("Create folder"),
+        RENAME("Rename"),
+        COPY("Copy"),
+        UPDATE("Update"),
+        PRUNE("Delete extras in"),
+        DELETE("Delete");
+
+        private final String title;
+
+        Type(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() { return title; }
+    }
+
+    /**
+     * One step of a plan. Names are relative to the roots.
+     *
+     * @param source name on the source side; for {@link Type#RENAME} the current name on the target side,
+     *               for {@link Type#DELETE} the same as {@code target}. A rename whose file no longer matches
+     *               the source when the plan runs is carried out as a copy from the source instead
+     * @param size   bytes to copy, or -1 for a folder copied whole (measured when the plan runs)
+     * @param folder whether the entry is a folder
+     */
+    public record Action(Type type, String source, String target, long size, boolean folder) {}
+
+    /**
+     * @param skipped names of rows left alone
+     */
+    public record Plan(Path sourceRoot, Path targetRoot, List<Action> actions, List<String> skipped) {
+
+        public long count(Type type) {
+            return actions.stream().filter(a -> a.type() == type).count();
+        }
+
+        /** Bytes to copy, not counting folders copied whole. */
+        public long bytes() {
+            return actions.stream().filter(a -> a.type() == Type.COPY || a.type() == Type.UPDATE)
+                    .mapToLong(a -> Math.max(0, a.size())).sum();
+        }
+
+        public boolean isEmpty() { return actions.isEmpty(); }
+    }
+
+    /**
+     * Plans how to make the target side match the source side.
+     *
+     * @param rows          the compared rows, in scan order
+     * @param leftToRight   whether the left side is the source
+     * @param recursive     whether the rows list whole trees; otherwise folders are copied whole
+     * @param deleteOrphans whether entries present on the target only are deleted
+     */
+    public static Plan plan(List<PairedEntry> rows, Path leftRoot, Path rightRoot, boolean leftToRight,
+                            boolean recursive, boolean deleteOrphans) {
+        // Target orphans reused by a rename are neither deleted nor copied
+        Set<String> renamed = new HashSet<>();
+        if (deleteOrphans) {
+            for (PairedEntry pe : rows) {
+                if (source(pe, leftToRight) != null && target(pe, leftToRight) == null
+                        && pe.getStatus() == CompareStatus.RELOCATED && pe.getCounterpart() != null) {
+                    renamed.add(pe.getCounterpart());
+                }
+            }
+        }
+
+        List<Action> folders = new ArrayList<>();
+        List<Action> renames = new ArrayList<>();
+        List<Action> copies = new ArrayList<>();
+        List<Action> prunes = new ArrayList<>();
+        List<Action> deletes = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        String deletedFolder = null; // rows below it go with it
+        for (PairedEntry pe : rows) {
+            FileInfo s = source(pe, leftToRight);
+            FileInfo t = target(pe, leftToRight);
+            if (s == null) {
+                String name = t.getName();
+                if (!deleteOrphans || renamed.contains(name)) continue;
+                if (deletedFolder != null && name.regionMatches(true, 0, deletedFolder, 0, deletedFolder.length())) continue;
+                deletes.add(new Action(Type.DELETE, name, name, t.getSize(), t.isDirectory()));
+                deletedFolder = recursive && t.isDirectory() ? name + File.separatorChar : null;
+            } else if (t == null) {
+                String name = s.getName();
+                if (s.isDirectory()) {
+                    folders.add(recursive
+                            ? new Action(Type.CREATE_FOLDER, name, name, 0, true)
+                            : new Action(Type.COPY, name, name, -1, true));
+                } else if (pe.getStatus() == CompareStatus.RELOCATED && renamed.contains(pe.getCounterpart())) {
+                    renames.add(new Action(Type.RENAME, pe.getCounterpart(), name, s.getSize(), false));
+                } else {
+                    copies.add(new Action(Type.COPY, name, name, s.getSize(), false));
+                }
+            } else if (s.isDirectory() != t.isDirectory()) {
+                skipped.add(s.getName());
+            } else if (pe.getStatus() == CompareStatus.PENDING || pe.getStatus() == CompareStatus.ERROR) {
+                skipped.add(s.getName());
+            } else if (pe.getStatus() == CompareStatus.DIFFERENT && !(recursive && s.isDirectory())) {
+                // In recursive mode a differing folder is handled through the rows below it
+                copies.add(new Action(Type.UPDATE, s.getName(), t.getName(), s.isDirectory() ? -1 : s.getSize(), s.isDirectory()));
+                if (deleteOrphans && s.isDirectory()) {
+                    // The folder copy adds and replaces entries but never removes the target's own
+                    prunes.add(new Action(Type.PRUNE, s.getName(), t.getName(), 0, true));
+                }
+            }
+        }
+
+        // Folder copies run with the file copies; only created folders form their own phase
+        List<Action> actions = new ArrayList<>();
+        folders.stream().filter(a -> a.type() == Type.CREATE_FOLDER).forEach(actions::add);
+        actions.addAll(renames);
+        folders.stream().filter(a -> a.type() == Type.COPY).forEach(actions::add);
+        actions.addAll(copies);
+        actions.addAll(prunes);
+        Collections.reverse(deletes);
+        actions.addAll(deletes);
+        return leftToRight
+                ? new Plan(leftRoot, rightRoot, List.copyOf(actions), List.copyOf(skipped))
+                : new Plan(rightRoot, leftRoot, List.copyOf(actions), List.copyOf(skipped));
+    }
+
+    private static FileInfo source(PairedEntry pe, boolean leftToRight) {
+        return leftToRight ? pe.getLeft() : pe.getRight();
+    }
+
+    private static FileInfo target(PairedEntry pe, boolean leftToRight) {
+        return leftToRight ? pe.getRight() : pe.getLeft();
+    }
+
+    /**
+     * Carries out a plan, reporting to the progress. Each action gets a result in plan order; a failed action
+     * does not stop the others, a cancellation stops the actions not yet started.
+     */
+    public static List<TransferResult> execute(Plan plan, TransferProgress progress) {
+        Path src = plan.sourceRoot();
+        Path dst = plan.targetRoot();
+        List<Action> actions = plan.actions();
+        TransferResult[] results = new TransferResult[actions.size()];
+
+        try {
+            for (Action a : actions) {
+                if (a.type() == Type.CREATE_FOLDER || a.type() == Type.PRUNE) continue;
+                if (a.folder()) FileOperations.measure(from(a, src, dst), progress);
+                else progress.addTotals(1, a.size());
+            }
+        } catch (Exception ignored) {
+            // Cancelled or unreadable: continue without (complete) totals
+        }
+
+        List<Integer> copies = new ArrayList<>();
+        for (int i = 0; i < actions.size(); i++) {
+            Action a = actions.get(i);
+            if (a.type() == Type.COPY || a.type() == Type.UPDATE) {
+                copies.add(i);
+                continue;
+            }
+            if (!copies.isEmpty()) {
+                copyAll(plan, copies, progress, results); // before the first delete
+                copies.clear();
+            }
+            results[i] = run(a, src, dst, progress);
+        }
+        if (!copies.isEmpty()) copyAll(plan, copies, progress, results);
+        return List.of(results);
+    }
+
+    private static TransferResult run(Action a, Path src, Path dst, TransferProgress progress) {
+        Path from = from(a, src, dst);
+        Path to = a.type() == Type.DELETE ? null : dst.resolve(a.target());
+        if (progress.isCancelled()) return TransferResult.cancelled(from, to);
+        try {
+            switch (a.type()) {
+                case CREATE_FOLDER -> Files.createDirectories(to);
+                case RENAME -> {
+                    Files.createDirectories(to.getParent());
+                    Path original = src.resolve(a.target());
+                    if (CompareUtil.mismatch(from, original) == -1L) {
+                        FileOperations.moveRecursive(from, to, progress);
+                    } else {
+                        // The twin changed since the comparison: copy the source, then drop the orphan as planned
+                        FileOperations.copyRecursive(original, to, progress);
+                        FileOperations.deleteRecursive(from);
+                    }
+                }
+                case PRUNE -> FileOperations.deleteExtras(from, to, progress);
+                case DELETE -> FileOperations.deleteRecursive(from, progress);
+                default -> throw new IllegalArgumentException(a.type().name());
+            }
+            return TransferResult.done(from, to);
+        } catch (CancellationException ex) {
+            return TransferResult.cancelled(from, to);
+        } catch (IOException | UncheckedIOException ex) {
+            return TransferResult.failed(from, to, ex.getMessage());
+        }
+    }
+
+    private static Path from(Action a, Path src, Path dst) {
+        return a.type() == Type.RENAME || a.type() == Type.DELETE ? dst.resolve(a.source()) : src.resolve(a.source());
+    }
+
+    private static void copyAll(Plan plan, List<Integer> indexes, TransferProgress progress, TransferResult[] results) {
+        List<Path> sources = new ArrayList<>(indexes.size());
+        List<Path> targets = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            Action a = plan.actions().get(i);
+            sources.add(plan.sourceRoot().resolve(a.source()));
+            targets.add(plan.targetRoot().resolve(a.target()));
+        }
+        List<Throwable> failures;
+        try (ParallelCopier copier = new ParallelCopier(progress)) {
+            failures = copier.copyEach(sources, targets);
+        }
+        for (int k = 0; k < indexes.size(); k++) {
+            Throwable f = failures.get(k);
+            results[indexes.get(k)] = f == null ? TransferResult.done(sources.get(k), targets.get(k))
+                    : f instanceof CancellationException ? TransferResult.cancelled(sources.get(k), targets.get(k))
+                    : TransferResult.failed(sources.get(k), targets.get(k), f.getMessage());
+        }
+    }
+}
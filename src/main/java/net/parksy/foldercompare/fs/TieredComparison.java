@@ -0,0 +1,28 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * Runs strategies from cheapest to most thorough and returns the first decisive answer.
+ */
+public final class TieredComparison implements ComparisonStrategy {
+    private final List<ComparisonStrategy> tiers;
+
+    public TieredComparison(List<ComparisonStrategy> tiers) {
+        this.tiers = List.copyOf(tiers);
+    }
+
+    @Override
+    public CompareStatus compareFiles(Path a, BasicFileAttributes aa, Path b, BasicFileAttributes ab) throws IOException {
+        for (ComparisonStrategy tier : tiers) {
+            CompareStatus status = tier.compareFiles(a, aa, b, ab);
+            if (status != CompareStatus.PENDING) return status;
+        }
+        return CompareStatus.PENDING;
+    }
+}
@@ -0,0 +1,89 @@
+package net.parksy.foldercompare.fs;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe progress counters and cooperative cancellation flag for a file transfer.
+ * Operations add to the counters as they go and call {@link #checkCancelled()} between chunks;
+ * the UI polls the counters to show throughput and ETA.
+ */
+public final class TransferProgress {
+    private final AtomicLong bytesDone = new AtomicLong();
+    private final AtomicLong filesDone = new AtomicLong();
+    private final AtomicLong bytesTotal = new AtomicLong();
+    private final AtomicLong filesTotal = new AtomicLong();
+    private final AtomicLong bytesInPlace = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean cancelled;
+
+    public void addTotals(long files, long bytes) {
+        filesTotal.addAndGet(files);
+        bytesTotal.addAndGet(bytes);
+    }
+
+    public void addBytes(long n) { bytesDone.addAndGet(n); }
+    public void fileDone() { filesDone.incrementAndGet(); }
+
+    /**
+     * Counts work that finished without passing through the per-file counters, such as a directory rename.
+     */
+    public void addDone(long files, long bytes) {
+        filesDone.addAndGet(files);
+        bytesDone.addAndGet(bytes);
+    }
+
+    /**
+     * Counts done bytes that were already at the destination and did not have to be written (delta copies).
+     * They are part of the bytes done as well.
+     */
+    public void addBytesInPlace(long n) { bytesInPlace.addAndGet(n); }
+
+    public long getBytesDone() { return bytesDone.get(); }
+    public long getBytesInPlace() { return bytesInPlace.get(); }
+    public long getFilesDone() { return filesDone.get(); }
+    public long getBytesTotal() { return bytesTotal.get(); }
+    public long getFilesTotal() { return filesTotal.get(); }
+
+    public void cancel() { cancelled = true; }
+    public boolean isCancelled() { return cancelled; }
+
+    /**
+     * @throws CancellationException if {@link #cancel()} was called
+     */
+    public void checkCancelled() {
+        if (cancelled) throw new CancellationException("Transfer cancelled");
+    }
+
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+
+    public double getBytesPerSecond() {
+        double s = getElapsedSeconds();
+        return s <= 0 ? 0 : getBytesDone() / s;
+    }
+
+    public double getFilesPerSecond() {
+        double s = getElapsedSeconds();
+        return s <= 0 ? 0 : getFilesDone() / s;
+    }
+
+    /**
+     * Estimated seconds remaining based on the byte rate so far (file rate when nothing is byte-sized),
+     * or -1 when no estimate is possible yet.
+     */
+    public long getEtaSeconds() {
+        long remainingBytes = getBytesTotal() - getBytesDone();
+        double bps = getBytesPerSecond();
+        if (getBytesTotal() > 0 && bps > 0) {
+            return Math.max(0, Math.round(remainingBytes / bps));
+        }
+        long remainingFiles = getFilesTotal() - getFilesDone();
+        double fps = getFilesPerSecond();
+        if (getFilesTotal() > 0 && fps > 0) {
+            return Math.max(0, Math.round(remainingFiles / fps));
+        }
+        return -1;
+    }
+}
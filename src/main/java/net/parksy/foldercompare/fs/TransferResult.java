@@ -0,0 +1,26 @@
+package net.parksy.foldercompare.fs;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of transferring (copying, moving or deleting) one selected item.
+ *
+ * @param target destination path, or null for deletions
+ * @param message error detail for failed items, otherwise empty
+ */
+public record TransferResult(Path source, Path target, Outcome outcome, String message) {
+
+    public enum Outcome { DONE, FAILED, CANCELLED }
+
+    public static TransferResult done(Path source, Path target) {
+        return new TransferResult(source, target, Outcome.DONE, "");
+    }
+
+    public static TransferResult failed(Path source, Path target, String message) {
+        return new TransferResult(source, target, Outcome.FAILED, message == null ? "" : message);
+    }
+
+    public static TransferResult cancelled(Path source, Path target) {
+        return new TransferResult(source, target, Outcome.CANCELLED, "");
+    }
+}
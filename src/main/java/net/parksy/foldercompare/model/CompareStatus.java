@@ -0,0 +1,17 @@
+package net.parksy.foldercompare.model;
+
+/**
+ * Result of comparing the two sides of a {@link PairedEntry}.
+ */
+public enum CompareStatus {
+    /** Not compared yet (or comparison still running). */
+    PENDING,
+    /** Both sides have the same content. */
+    EQUAL,
+    /** Sides differ in type or content, or one side is missing. */
+    DIFFERENT,
+    /** Present on one side only, with the same content on the other side under another name or path. */
+    RELOCATED,
+    /** Comparison failed (e.g. unreadable file); treated as different for styling. */
+    ERROR
+}
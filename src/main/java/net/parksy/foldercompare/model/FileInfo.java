@@ -6,41 +6,86 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 
-import javafx.beans.property.SimpleLongProperty;
-import javafx.beans.property.SimpleObjectProperty;
-import javafx.beans.property.SimpleStringProperty;
-
 /**
  * Immutable file metadata used by the UI.
+ * Plain fields with a primitive modification time, so one scanned entry is a single small object.
  */
-public class FileInfo {
-    private final SimpleStringProperty name = new SimpleStringProperty("");
+public final class FileInfo {
+    /** Stored modification time meaning "unknown". */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private final String name;
     private final boolean directory;
-    private final SimpleLongProperty size = new SimpleLongProperty(-1);
-    private final SimpleObjectProperty<Instant> modified = new SimpleObjectProperty<>(null);
+    private final long size;
+    private final long modifiedNanos;
 
     public FileInfo(String name, boolean directory, long size, Instant modified) {
-        this.name.set(name);
+        this(name, directory, size, toEpochNanos(modified));
+    }
+
+    private FileInfo(String name, boolean directory, long size, long modifiedNanos) {
+        this.name = name == null ? "" : name;
         this.directory = directory;
-        this.size.set(size);
-        this.modified.set(modified);
+        this.size = size;
+        this.modifiedNanos = modifiedNanos;
     }
 
-    public String getName() { return name.get(); }
+    /**
+     * @param modifiedNanos modification time in nanoseconds since the epoch, or {@link #NO_TIME}
+     */
+    public static FileInfo ofEpochNanos(String name, boolean directory, long size, long modifiedNanos) {
+        return new FileInfo(name, directory, size, modifiedNanos);
+    }
+
+    public String getName() { return name; }
     public boolean isDirectory() { return directory; }
-    public long getSize() { return size.get(); }
-    public Instant getModified() { return modified.get(); }
+    public long getSize() { return size; }
+
+    /** Modification time in nanoseconds since the epoch, or {@link #NO_TIME}. */
+    public long getModifiedNanos() { return modifiedNanos; }
+
+    public Instant getModified() {
+        if (modifiedNanos == NO_TIME) return null;
+        return Instant.ofEpochSecond(Math.floorDiv(modifiedNanos, 1_000_000_000L), Math.floorMod(modifiedNanos, 1_000_000_000L));
+    }
 
     public String getSizeDisplay() {
         if (directory) return ""; // no size for directories per spec
-        long s = getSize();
-        return Long.toString(s);
+        return Long.toString(size);
     }
 
     public String getModifiedDisplay() {
-        Instant m = getModified();
-        if (m == null) return "";
-        LocalDateTime ldt = LocalDateTime.ofInstant(m, ZoneId.systemDefault());
-        return Constants.DATE_TIME_FORMATTER.format(ldt);
+        return formatModified(modifiedNanos);
+    }
+
+    private record FormattedSecond(long epochSecond, String text) {}
+
+    // Direct-mapped by epoch second; files written together share their text instead of reformatting it
+    private static final FormattedSecond[] MODIFIED_TEXT = new FormattedSecond[4096];
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    /**
+     * Formats a modification time with {@link Constants#DATE_TIME_FORMATTER} in the zone the application
+     * started in. Texts are cached per second, so repainting rows does not allocate for recent hits.
+     */
+    public static String formatModified(long modifiedNanos) {
+        if (modifiedNanos == NO_TIME) return "";
+        long second = Math.floorDiv(modifiedNanos, 1_000_000_000L);
+        int slot = (int) (second ^ (second >>> 32)) & (MODIFIED_TEXT.length - 1);
+        FormattedSecond cached = MODIFIED_TEXT[slot];
+        if (cached != null && cached.epochSecond() == second) return cached.text();
+        String text = Constants.DATE_TIME_FORMATTER.format(LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZONE));
+        MODIFIED_TEXT[slot] = new FormattedSecond(second, text);
+        return text;
+    }
+
+    // Saturates outside roughly 1677..2262 instead of overflowing
+    private static long toEpochNanos(Instant t) {
+        if (t == null) return NO_TIME;
+        try {
+            return Math.addExact(Math.multiplyExact(t.getEpochSecond(), 1_000_000_000L), t.getNano());
+        } catch (ArithmeticException ex) {
+            return t.getEpochSecond() < 0 ? NO_TIME + 1 : Long.MAX_VALUE;
+        }
     }
 }
@@ -2,45 +2,131 @@ package net.parksy.foldercompare.model;
 
 import java.io.File;
 
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
 /**
  * Represents an aligned row for left/right comparison.
+ * Rows from a recursive scan are thin views of two {@link ScanSnapshot}s (see {@link #of}), so the
+ * per-row cost is two indices; their {@link FileInfo}s are materialized only when asked for.
  */
 public class PairedEntry {
     private final FileInfo left;
     private final FileInfo right;
+    private CompareStatus status = CompareStatus.PENDING;
+    private ObjectProperty<CompareStatus> statusProperty; // created once a visible row observes it
+    private String counterpart; // name of the same content on the other side, for relocated orphans
+    private String[] display; // rendered texts, filled the first time a row is painted (see DISPLAY_*)
+
+    private static final int DISPLAY_LEFT = 0;
+    private static final int DISPLAY_RIGHT = 3;
 
     public PairedEntry(FileInfo left, FileInfo right) {
         this.left = left;
         this.right = right;
     }
 
+    /**
+     * Row backed by entry {@code leftIndex} of {@code left} and {@code rightIndex} of {@code right};
+     * an index of -1 means the side is missing.
+     */
+    public static PairedEntry of(ScanSnapshot left, int leftIndex, ScanSnapshot right, int rightIndex) {
+        return new SnapshotView(left, leftIndex, right, rightIndex);
+    }
+
     public FileInfo getLeft() { return left; }
     public FileInfo getRight() { return right; }
 
-    // Left getters for TableView
-    public String getLeftName() { return left == null ? "" : decorateName(left); }
-    public String getLeftSizeDisplay() { return left == null ? "" : left.getSizeDisplay(); }
-    public String getLeftModifiedDisplay() { return left == null ? "" : left.getModifiedDisplay(); }
+    public boolean hasLeft() { return left != null; }
+    public boolean hasRight() { return right != null; }
+
+    // Left getters for TableView; computed once per row, then served from the cache
+    public String getLeftName() { return display(DISPLAY_LEFT); }
+    public String getLeftSizeDisplay() { return display(DISPLAY_LEFT + 1); }
+    public String getLeftModifiedDisplay() { return display(DISPLAY_LEFT + 2); }
 
     // Right getters
-    public String getRightName() { return right == null ? "" : decorateName(right); }
-    public String getRightSizeDisplay() { return right == null ? "" : right.getSizeDisplay(); }
-    public String getRightModifiedDisplay() { return right == null ? "" : right.getModifiedDisplay(); }
+    public String getRightName() { return display(DISPLAY_RIGHT); }
+    public String getRightSizeDisplay() { return display(DISPLAY_RIGHT + 1); }
+    public String getRightModifiedDisplay() { return display(DISPLAY_RIGHT + 2); }
 
-    public boolean isOrphanLeft() { return left != null && right == null; }
-    public boolean isOrphanRight() { return right != null && left == null; }
+    private String display(int slot) {
+        String[] d = display;
+        if (d == null) {
+            d = new String[6];
+            display = d;
+        }
+        String text = d[slot];
+        if (text == null) {
+            // Fill name, size and date of one side together, so a snapshot row is materialized once per side
+            int base = slot < DISPLAY_RIGHT ? DISPLAY_LEFT : DISPLAY_RIGHT;
+            FileInfo fi = base == DISPLAY_LEFT ? (hasLeft() ? getLeft() : null) : (hasRight() ? getRight() : null);
+            d[base] = fi == null ? "" : decorateName(fi);
+            d[base + 1] = fi == null ? "" : fi.getSizeDisplay();
+            d[base + 2] = fi == null ? "" : fi.getModifiedDisplay();
+            text = d[slot];
+        }
+        return text;
+    }
+
+    /**
+     * Cached content comparison result. Computed off the FX thread by the comparison engine,
+     * and only updated on the FX thread so table rows can observe it.
+     */
+    public CompareStatus getStatus() {
+        return statusProperty == null ? status : statusProperty.get();
+    }
+
+    public void setStatus(CompareStatus value) {
+        if (statusProperty == null) status = value; else statusProperty.set(value);
+    }
+
+    public ObjectProperty<CompareStatus> statusProperty() {
+        if (statusProperty == null) statusProperty = new SimpleObjectProperty<>(this, "status", status);
+        return statusProperty;
+    }
+
+    /**
+     * Name (relative to the other side's root) of the file with this orphan's content on the other side,
+     * or null. Set by rename detection on the FX thread.
+     */
+    public String getCounterpart() { return counterpart; }
+
+    public void setCounterpart(String name) { this.counterpart = name; }
+
+    public boolean isOrphanLeft() { return hasLeft() && !hasRight(); }
+    public boolean isOrphanRight() { return hasRight() && !hasLeft(); }
 
     public boolean isDifferent() {
-        if (left == null || right == null) return false; // only flag mismatch when both exist
-        if (left.isDirectory() != right.isDirectory()) return true;
-        boolean sizeDiff = !left.isDirectory() && left.getSize() != right.getSize();
-        var lm = left.getModified();
-        var rm = right.getModified();
-        boolean modDiff = (lm == null && rm != null) || (lm != null && rm == null) || (lm != null && !lm.equals(rm));
-        return sizeDiff || modDiff;
+        if (!hasLeft() || !hasRight()) return false; // only flag mismatch when both exist
+        FileInfo l = getLeft();
+        FileInfo r = getRight();
+        if (l.isDirectory() != r.isDirectory()) return true;
+        boolean sizeDiff = !l.isDirectory() && l.getSize() != r.getSize();
+        return sizeDiff || l.getModifiedNanos() != r.getModifiedNanos();
     }
 
     private String decorateName(FileInfo fi) {
         return fi.isDirectory() ? fi.getName() + File.separator : fi.getName();
     }
+
+    private static final class SnapshotView extends PairedEntry {
+        private final ScanSnapshot leftSnapshot;
+        private final ScanSnapshot rightSnapshot;
+        private final int leftIndex;
+        private final int rightIndex;
+
+        SnapshotView(ScanSnapshot left, int leftIndex, ScanSnapshot right, int rightIndex) {
+            super(null, null);
+            this.leftSnapshot = left;
+            this.leftIndex = leftIndex;
+            this.rightSnapshot = right;
+            this.rightIndex = rightIndex;
+        }
+
+        @Override public FileInfo getLeft() { return leftIndex < 0 ? null : leftSnapshot.fileInfo(leftIndex); }
+        @Override public FileInfo getRight() { return rightIndex < 0 ? null : rightSnapshot.fileInfo(rightIndex); }
+        @Override public boolean hasLeft() { return leftIndex >= 0; }
+        @Override public boolean hasRight() { return rightIndex >= 0; }
+    }
 }
@@ -0,0 +1,150 @@
+package net.parksy.foldercompare.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Column store of scanned entries: all names live in one UTF-8 byte arena, and size,
+ * modification time and flags in parallel primitive arrays. An entry is an index, so a
+ * snapshot of millions of entries is a handful of arrays instead of millions of objects.
+ * <p>
+ * Entries are kept in the order they were added (the scanners add them in display order).
+ * A snapshot is immutable once built; use a {@link Builder} to create one.
+ */
+public final class ScanSnapshot {
+    private static final byte FLAG_DIRECTORY = 1;
+
+    public static final ScanSnapshot EMPTY = new Builder().build();
+
+    private final byte[] names;
+    private final int[] nameOffsets; // entry i spans [nameOffsets[i], nameOffsets[i + 1])
+    private final long[] sizes;
+    private final long[] modified;
+    private final byte[] flags;
+    private final int count;
+
+    private ScanSnapshot(byte[] names, int[] nameOffsets, long[] sizes, long[] modified, byte[] flags, int count) {
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.sizes = sizes;
+        this.modified = modified;
+        this.flags = flags;
+        this.count = count;
+    }
+
+    public int count() { return count; }
+
+    /** Decodes the name of entry {@code i}; allocates, so callers on hot paths should keep the result. */
+    public String name(int i) {
+        int from = nameOffsets[i];
+        return new String(names, from, nameOffsets[i + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    public boolean isDirectory(int i) { return (flags[i] & FLAG_DIRECTORY) != 0; }
+    public long fileSize(int i) { return sizes[i]; }
+
+    /** Modification time in nanoseconds since the epoch, or {@link FileInfo#NO_TIME}. */
+    public long modifiedNanos(int i) { return modified[i]; }
+
+    /** Whether entry {@code i} here and entry {@code j} in {@code other} have byte-identical names. */
+    public boolean nameEquals(int i, ScanSnapshot other, int j) {
+        return Arrays.equals(names, nameOffsets[i], nameOffsets[i + 1],
+                other.names, other.nameOffsets[j], other.nameOffsets[j + 1]);
+    }
+
+    /** Materializes entry {@code i} as a standalone object. */
+    public FileInfo fileInfo(int i) {
+        return FileInfo.ofEpochNanos(name(i), isDirectory(i), sizes[i], modified[i]);
+    }
+
+    /** Approximate heap used by the columns, for diagnostics. */
+    public long heapBytes() {
+        return names.length + 4L * nameOffsets.length + 8L * sizes.length + 8L * modified.length + flags.length;
+    }
+
+    /**
+     * Appends entries to growable columns. Not thread-safe; each scanning task fills its own builder.
+     */
+    public static final class Builder {
+        private byte[] names;
+        private int nameBytes;
+        private int[] nameOffsets;
+        private long[] sizes;
+        private long[] modified;
+        private byte[] flags;
+        private int count;
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(int expectedEntries) {
+            int n = Math.max(1, expectedEntries);
+            names = new byte[n * 16];
+            nameOffsets = new int[n + 1];
+            sizes = new long[n];
+            modified = new long[n];
+            flags = new byte[n];
+        }
+
+        public int count() { return count; }
+
+        public Builder add(String name, boolean directory, long size, long modifiedNanos) {
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            ensureEntries(count + 1);
+            ensureNameBytes(nameBytes + utf8.length);
+            System.arraycopy(utf8, 0, names, nameBytes, utf8.length);
+            nameBytes += utf8.length;
+            sizes[count] = size;
+            modified[count] = modifiedNanos;
+            flags[count] = directory ? FLAG_DIRECTORY : 0;
+            count++;
+            nameOffsets[count] = nameBytes;
+            return this;
+        }
+
+        public Builder add(FileInfo fi) {
+            return add(fi.getName(), fi.isDirectory(), fi.getSize(), fi.getModifiedNanos());
+        }
+
+        /** Appends every entry of {@code other}, in order. */
+        public Builder addAll(ScanSnapshot other) {
+            int n = other.count;
+            if (n == 0) return this;
+            int bytes = other.nameOffsets[n];
+            ensureEntries(count + n);
+            ensureNameBytes(nameBytes + bytes);
+            System.arraycopy(other.names, 0, names, nameBytes, bytes);
+            for (int i = 1; i <= n; i++) {
+                nameOffsets[count + i] = nameBytes + other.nameOffsets[i];
+            }
+            System.arraycopy(other.sizes, 0, sizes, count, n);
+            System.arraycopy(other.modified, 0, modified, count, n);
+            System.arraycopy(other.flags, 0, flags, count, n);
+            nameBytes += bytes;
+            count += n;
+            return this;
+        }
+
+        /** Returns a snapshot with columns trimmed to size. The builder should not be used afterwards. */
+        public ScanSnapshot build() {
+            return new ScanSnapshot(Arrays.copyOf(names, nameBytes), Arrays.copyOf(nameOffsets, count + 1),
+                    Arrays.copyOf(sizes, count), Arrays.copyOf(modified, count), Arrays.copyOf(flags, count), count);
+        }
+
+        private void ensureEntries(int n) {
+            if (n <= sizes.length) return;
+            int cap = Math.max(n, sizes.length + (sizes.length >> 1));
+            nameOffsets = Arrays.copyOf(nameOffsets, cap + 1);
+            sizes = Arrays.copyOf(sizes, cap);
+            modified = Arrays.copyOf(modified, cap);
+            flags = Arrays.copyOf(flags, cap);
+        }
+
+        private void ensureNameBytes(int n) {
+            if (n < 0) throw new IllegalStateException("Name arena exceeds 2 GiB");
+            if (n <= names.length) return;
+            names = Arrays.copyOf(names, Math.max(n, names.length + (names.length >> 1)));
+        }
+    }
+}
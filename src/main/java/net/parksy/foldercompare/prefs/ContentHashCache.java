@@ -0,0 +1,191 @@
+package net.parksy.foldercompare.prefs;
+
+import net.parksy.foldercompare.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent cache of file content digests (SHA-256), keyed by absolute path.
+ * A cached digest is only used while the file's size, modification time and file key
+ * (inode on Unix) are unchanged, so unchanged files never have to be read again.
+ * The cache holds at most {@code maxEntries} digests and evicts the least recently used.
+ */
+public class ContentHashCache {
+    private static final int MAGIC = 0x46434843; // "FCHC"
+    private static final int VERSION = 1;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_PERSISTED_PATH_CHARS = 65535 / 3;
+
+    private record Entry(long size, long modified, String fileKey, byte[] digest) {}
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public ContentHashCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ContentHashCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Default cache file in the per-user application data folder.
+     */
+    public static Path defaultLocation() {
+        return Path.of(System.getProperty("user.home"), Constants.APP_DATA_DIR, Constants.HASH_CACHE_FILE);
+    }
+
+    /**
+     * Loads a cache file. A missing, truncated or incompatible file yields an empty cache.
+     */
+    public static ContentHashCache load(Path file, int maxEntries) {
+        ContentHashCache cache = new ContentHashCache(maxEntries);
+        if (!Files.isRegularFile(file)) {
+            return cache;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return cache;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                String fileKey = in.readUTF();
+                byte[] digest = new byte[in.readUnsignedByte()];
+                in.readFully(digest);
+                cache.entries.put(path, new Entry(size, modified, fileKey, digest));
+            }
+        } catch (IOException e) {
+            // Keep whatever was read before the damage
+        }
+        return cache;
+    }
+
+    /**
+     * Writes the cache, least recently used first, replacing the target file atomically.
+     */
+    public synchronized void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            // writeUTF is limited to 64 KiB; paths that could exceed it (3 bytes per char worst case) are not persisted
+            int count = 0;
+            for (String key : entries.keySet()) {
+                if (key.length() <= MAX_PERSISTED_PATH_CHARS) count++;
+            }
+            out.writeInt(count);
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (e.getKey().length() > MAX_PERSISTED_PATH_CHARS) continue;
+                Entry v = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(v.size());
+                out.writeLong(v.modified());
+                out.writeUTF(v.fileKey());
+                out.writeByte(v.digest().length);
+                out.write(v.digest());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the cached digest of a file if it is still valid for the given attributes, otherwise null.
+     */
+    public byte[] lookup(Path file, BasicFileAttributes attrs) {
+        String key = file.toAbsolutePath().normalize().toString();
+        long modified = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        String fileKey = attrs.fileKey() == null ? "" : attrs.fileKey().toString();
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null && e.size() == attrs.size() && e.modified() == modified && e.fileKey().equals(fileKey)) {
+                return e.digest();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cached digest of a file if its size and modification time are unchanged, otherwise null.
+     * For attributes already scanned, without a stat call; the file key is not checked.
+     *
+     * @param modifiedNanos modification time in nanoseconds since the epoch
+     */
+    public byte[] lookup(Path file, long size, long modifiedNanos) {
+        String key = file.toAbsolutePath().normalize().toString();
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null && e.size() == size && e.modified() == modifiedNanos) {
+                return e.digest();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the content digest of a regular file, reading it only if no valid cached digest exists.
+     */
+    public byte[] digest(Path file, BasicFileAttributes attrs) throws IOException {
+        byte[] cached = lookup(file, attrs);
+        if (cached != null) {
+            return cached;
+        }
+        String key = file.toAbsolutePath().normalize().toString();
+        long modified = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        String fileKey = attrs.fileKey() == null ? "" : attrs.fileKey().toString();
+        // Hash outside the lock so workers can read different files concurrently
+        byte[] digest = computeDigest(file, attrs.size());
+        // Only remember the digest if the file did not change while it was being read
+        BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+        if (after.size() == attrs.size() && after.lastModifiedTime().to(TimeUnit.NANOSECONDS) == modified) {
+            synchronized (this) {
+                entries.put(key, new Entry(attrs.size(), modified, fileKey, digest));
+            }
+        }
+        return digest;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static byte[] computeDigest(Path file, long size) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.max(1, Math.min(size, READ_BUFFER_SIZE)));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (ch.read(buf) != -1) {
+                buf.flip();
+                md.update(buf);
+                buf.clear();
+            }
+        }
+        return md.digest();
+    }
+}
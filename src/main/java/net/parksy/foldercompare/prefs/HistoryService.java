@@ -2,14 +2,24 @@ package net.parksy.foldercompare.prefs;
 
 import net.parksy.foldercompare.Constants;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.prefs.Preferences;
 
 /**
- * Manages persistence of the left/right folder history.
+ * Manages persistence of the left/right folder history, and of the filter rules and last saved comparison
+ * snapshot of each folder pair.
  */
 public class HistoryService {
+    /** Between the left and right folder in a history entry. */
+    private static final String PAIR_SEPARATOR = " \u2194 ";
+
     private final Preferences prefs;
 
     public HistoryService() {
@@ -28,7 +38,19 @@ public class HistoryService {
         return res;
     }
 
+    /**
+     * Stores the history; folder pairs that drop out of it also lose their remembered filter and snapshot link.
+     */
     public void saveHistory(List<String> items) {
+        List<String> kept = items == null ? List.of() : items.subList(0, Math.min(items.size(), Constants.MAX_HISTORY_ITEMS));
+        for (String old : loadHistory()) {
+            int at = old.indexOf(PAIR_SEPARATOR);
+            if (at < 0 || kept.contains(old)) continue;
+            String left = old.substring(0, at);
+            String right = old.substring(at + PAIR_SEPARATOR.length());
+            prefs.remove(pairKey(Constants.PREF_FILTER_PREFIX, left, right));
+            prefs.remove(pairKey(Constants.PREF_SNAPSHOT_PREFIX, left, right));
+        }
         int count = Math.min(items == null ? 0 : items.size(), Constants.MAX_HISTORY_ITEMS);
         prefs.putInt(Constants.PREF_HISTORY_COUNT, count);
         for (int i = 0; i < count; i++) {
@@ -39,4 +61,51 @@ public class HistoryService {
             prefs.remove(Constants.PREF_HISTORY_PREFIX + i);
         }
     }
+
+    /**
+     * The filter rules last used with this folder pair, or an empty string.
+     */
+    public String loadFilter(String left, String right) {
+        return prefs.get(pairKey(Constants.PREF_FILTER_PREFIX, left, right), "");
+    }
+
+    /**
+     * Remembers the filter rules for this folder pair; blank rules forget them.
+     */
+    public void saveFilter(String left, String right, String spec) {
+        String key = pairKey(Constants.PREF_FILTER_PREFIX, left, right);
+        if (spec == null || spec.isBlank()) {
+            prefs.remove(key);
+        } else {
+            prefs.put(key, spec.strip());
+        }
+    }
+
+    /**
+     * The snapshot file last saved for this folder pair, or null. The file may have been deleted since.
+     */
+    public Path loadSnapshotLink(String left, String right) {
+        String file = prefs.get(pairKey(Constants.PREF_SNAPSHOT_PREFIX, left, right), null);
+        if (file == null) return null;
+        try {
+            return Path.of(file);
+        } catch (InvalidPathException ex) {
+            return null;
+        }
+    }
+
+    public void saveSnapshotLink(String left, String right, Path file) {
+        prefs.put(pairKey(Constants.PREF_SNAPSHOT_PREFIX, left, right), file.toAbsolutePath().toString());
+    }
+
+    // Preference keys are limited to 80 characters, so the pair is hashed
+    private static String pairKey(String prefix, String left, String right) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((left.strip() + '\n' + right.strip()).getBytes(StandardCharsets.UTF_8));
+            return prefix + HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,94 @@
+package net.parksy.foldercompare.cli;
+
+import net.parksy.foldercompare.fs.FileOperations;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompareCliTest {
+
+    private static String out;
+    private static String err;
+
+    private static int run(String... args) {
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        ByteArrayOutputStream e = new ByteArrayOutputStream();
+        int code = CompareCli.run(args, new PrintStream(o, true, StandardCharsets.UTF_8), new PrintStream(e, true, StandardCharsets.UTF_8));
+        out = o.toString(StandardCharsets.UTF_8);
+        err = e.toString(StandardCharsets.UTF_8);
+        return code;
+    }
+
+    @Test
+    void jsonLines_reportEachEntryAndExitOnDifference() throws Exception {
+        Path dir = Files.createTempDirectory("cli-");
+        try {
+            Path l = Files.createDirectories(dir.resolve("l"));
+            Path r = Files.createDirectories(dir.resolve("r"));
+            Files.writeString(l.resolve("same.txt"), "x");
+            Files.writeString(r.resolve("same.txt"), "x");
+            Files.writeString(l.resolve("only \"left\".txt"), "y");
+
+            assertEquals(CompareCli.EXIT_DIFFERENT, run("--no-cache", l.toString(), r.toString()));
+            List<String> lines = out.lines().toList();
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(0).contains("\"path\":\"only \\\"left\\\".txt\""));
+            assertTrue(lines.get(0).contains("\"status\":\"LEFT_ONLY\""));
+            assertFalse(lines.get(0).contains("rightSize"));
+            assertTrue(lines.get(1).contains("\"status\":\"EQUAL\""));
+
+            Files.delete(l.resolve("only \"left\".txt"));
+            assertEquals(CompareCli.EXIT_SAME, run("--no-cache", "-f", "csv", l.toString(), r.toString()));
+            assertEquals("pair,left,right,path,type,status,leftSize,rightSize,leftModified,rightModified", out.lines().findFirst().orElseThrow());
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void recursive_derivesFolderStatusFromDescendants() throws Exception {
+        Path dir = Files.createTempDirectory("cli-");
+        try {
+            Path l = Files.createDirectories(dir.resolve("l/a/deep"));
+            Path r = Files.createDirectories(dir.resolve("r/a/deep"));
+            Files.createDirectories(dir.resolve("l/b"));
+            Files.createDirectories(dir.resolve("r/b"));
+            Files.writeString(l.resolve("f.txt"), "one");
+            Files.writeString(r.resolve("f.txt"), "two");
+
+            assertEquals(CompareCli.EXIT_DIFFERENT, run("--no-cache", "-r", "-d", "-t", "content",
+                    dir.resolve("l").toString(), dir.resolve("r").toString()));
+            List<String> lines = out.lines().toList();
+            // a, a/deep and a/deep/f.txt differ; b is equal and omitted
+            assertEquals(3, lines.size());
+            assertTrue(lines.stream().allMatch(s -> s.contains("\"status\":\"DIFFERENT\"")));
+            assertTrue(lines.stream().noneMatch(s -> s.contains("\"path\":\"b\"")));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void unreadableEntries_exitWithTwo() {
+        assertEquals(CompareCli.EXIT_SAME, CompareCli.exitStatus(new String[] {"EQUAL", "EQUAL"}));
+        assertEquals(CompareCli.EXIT_DIFFERENT, CompareCli.exitStatus(new String[] {"EQUAL", "LEFT_ONLY", "DIFFERENT"}));
+        assertEquals(CompareCli.EXIT_ERROR, CompareCli.exitStatus(new String[] {"DIFFERENT", "ERROR", "EQUAL"}));
+    }
+
+    @Test
+    void usageErrors_exitWithTwo() {
+        assertEquals(CompareCli.EXIT_ERROR, run("only-one-folder"));
+        assertTrue(err.contains("pairs"));
+        assertEquals(CompareCli.EXIT_ERROR, run("-t", "bogus", "a", "b"));
+        assertTrue(err.contains("[metadata, sampled, content]"));
+        assertEquals(CompareCli.EXIT_ERROR, run("--no-cache", "/does/not/exist", "/nor/this"));
+        assertEquals(CompareCli.EXIT_SAME, run("--help"));
+    }
+}
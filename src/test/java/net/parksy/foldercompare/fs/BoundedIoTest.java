@@ -0,0 +1,51 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedIoTest {
+
+    @Test
+    void mapAll_keepsOrderAndCapsCallsInFlight(@TempDir Path tmp) {
+        List<Integer> inputs = IntStream.range(0, 200).boxed().toList();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<Integer> out = BoundedIo.mapAll(tmp, inputs, i -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return i * 2;
+        });
+
+        assertEquals(inputs.stream().map(i -> i * 2).toList(), out);
+        assertTrue(peak.get() <= Constants.IO_CONCURRENCY_PER_STORE, "peak " + peak.get());
+        assertTrue(peak.get() > 1, "calls should overlap");
+    }
+
+    @Test
+    void rootsOnOneStore_shareTheirPermits(@TempDir Path tmp) throws Exception {
+        Path a = Files.createDirectory(tmp.resolve("a"));
+        Path b = Files.createDirectory(tmp.resolve("b"));
+        assertSame(BoundedIo.permits(a), BoundedIo.permits(b));
+        int before = BoundedIo.permits(a).availablePermits();
+        assertEquals("done", BoundedIo.call(a, b, () -> {
+            assertEquals(before - 1, BoundedIo.permits(a).availablePermits());
+            return "done";
+        }));
+        assertEquals(before, BoundedIo.permits(a).availablePermits());
+    }
+}
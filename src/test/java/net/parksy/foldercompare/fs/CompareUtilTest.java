@@ -105,4 +105,80 @@ class CompareUtilTest {
             FileOperations.deleteRecursive(right);
         }
     }
+
+    @Test
+    void treesEqual_differenceDeepInSubtree_false() throws Exception {
+        Path left = Files.createTempDirectory("left-");
+        Path right = Files.createTempDirectory("right-");
+        try {
+            Files.createDirectories(left.resolve("a/b/c"));
+            Files.createDirectories(right.resolve("a/b/c"));
+            Files.writeString(left.resolve("a/b/c/deep.txt"), "A");
+            Files.writeString(right.resolve("a/b/c/deep.txt"), "B");
+
+            // The immediate level looks identical, only the recursive compare sees the change
+            assertTrue(CompareUtil.directoriesEqual(left, right));
+            assertFalse(CompareUtil.treesEqual(left, right));
+        } finally {
+            FileOperations.deleteRecursive(left);
+            FileOperations.deleteRecursive(right);
+        }
+    }
+
+    @Test
+    void treesEqual_sameNestedContent_true() throws Exception {
+        Path left = Files.createTempDirectory("left-");
+        Path right = Files.createTempDirectory("right-");
+        try {
+            Files.createDirectories(left.resolve("x/y"));
+            Files.createDirectories(right.resolve("x/y"));
+            Files.writeString(left.resolve("x/y/f.txt"), "same");
+            Files.writeString(right.resolve("x/y/f.txt"), "same");
+            Files.writeString(left.resolve("top.txt"), "1");
+            Files.writeString(right.resolve("top.txt"), "1");
+
+            assertTrue(CompareUtil.treesEqual(left, right));
+        } finally {
+            FileOperations.deleteRecursive(left);
+            FileOperations.deleteRecursive(right);
+        }
+    }
+
+    @Test
+    void mappedMismatch_reportsOffsetOfFirstDifferenceAcrossRegions() throws Exception {
+        Path dir = Files.createTempDirectory("cmp-");
+        try {
+            byte[] data = new byte[1000];
+            for (int i = 0; i < data.length; i++) data[i] = (byte) i;
+            byte[] changed = data.clone();
+            changed[573] ^= 1;
+            changed[901] ^= 1;
+            Path a = dir.resolve("a.bin");
+            Path b = dir.resolve("b.bin");
+            Files.write(a, data);
+            Files.write(b, changed);
+
+            assertEquals(573L, CompareUtil.mappedMismatch(a, b, 16));
+            assertEquals(-1L, CompareUtil.mappedMismatch(a, a, 16));
+            assertEquals(Files.mismatch(a, b), CompareUtil.mismatch(a, b, 1));
+            assertFalse(CompareUtil.filesEqual(a, b));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void mappedMismatch_prefixFile_reportsShorterLength() throws Exception {
+        Path dir = Files.createTempDirectory("cmp-");
+        try {
+            Path a = dir.resolve("a.bin");
+            Path b = dir.resolve("b.bin");
+            Files.writeString(a, "abcdef");
+            Files.writeString(b, "abcdefgh");
+            assertEquals(6L, CompareUtil.mappedMismatch(a, b, 4));
+            assertEquals(Files.mismatch(a, b), CompareUtil.mismatch(a, b, 0));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
 }
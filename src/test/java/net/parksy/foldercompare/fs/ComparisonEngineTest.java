@@ -0,0 +1,115 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonEngineTest {
+
+    private static FileInfo file(String name, long size) {
+        return new FileInfo(name, false, size, Instant.EPOCH);
+    }
+
+    private static FileInfo folder(String name) {
+        return new FileInfo(name, true, 0, Instant.EPOCH);
+    }
+
+    private static void awaitDecided(PairedEntry pe) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pe.getStatus() == CompareStatus.PENDING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void submit_computesStatusOffCallerThread() throws Exception {
+        Path left = Files.createTempDirectory("left-");
+        Path right = Files.createTempDirectory("right-");
+        try (ComparisonEngine engine = new ComparisonEngine(Runnable::run, 2)) {
+            Files.writeString(left.resolve("same.txt"), "abc");
+            Files.writeString(right.resolve("same.txt"), "abc");
+            Files.writeString(left.resolve("diff.txt"), "abc");
+            Files.writeString(right.resolve("diff.txt"), "abd");
+
+            PairedEntry same = new PairedEntry(file("same.txt", 3), file("same.txt", 3));
+            PairedEntry diff = new PairedEntry(file("diff.txt", 3), file("diff.txt", 3));
+            PairedEntry orphan = new PairedEntry(file("only.txt", 1), null);
+            engine.submit(List.of(same, diff, orphan), left, right);
+
+            awaitDecided(same);
+            awaitDecided(diff);
+            assertEquals(CompareStatus.EQUAL, same.getStatus());
+            assertEquals(CompareStatus.DIFFERENT, diff.getStatus());
+            assertEquals(CompareStatus.DIFFERENT, orphan.getStatus());
+        } finally {
+            FileOperations.deleteRecursive(left);
+            FileOperations.deleteRecursive(right);
+        }
+    }
+
+    @Test
+    void resolveFolders_derivesFolderStatusFromRowsBelow() {
+        String sep = File.separator;
+        PairedEntry a = new PairedEntry(folder("a"), folder("a"));
+        PairedEntry aFile = new PairedEntry(file("a" + sep + "x.txt", 1), file("a" + sep + "x.txt", 1));
+        PairedEntry b = new PairedEntry(folder("b"), folder("b"));
+        PairedEntry bc = new PairedEntry(folder("b" + sep + "c"), folder("b" + sep + "c"));
+        PairedEntry bcFile = new PairedEntry(file("b" + sep + "c" + sep + "y.txt", 1), null);
+        PairedEntry d = new PairedEntry(folder("d"), folder("d"));
+        PairedEntry dFile = new PairedEntry(file("d" + sep + "z.txt", 1), file("d" + sep + "z.txt", 1));
+        aFile.setStatus(CompareStatus.EQUAL);
+        bcFile.setStatus(CompareStatus.DIFFERENT);
+
+        ComparisonEngine.resolveFolders(List.of(a, aFile, b, bc, bcFile, d, dFile));
+        assertEquals(CompareStatus.EQUAL, a.getStatus());
+        assertEquals(CompareStatus.DIFFERENT, b.getStatus());
+        assertEquals(CompareStatus.DIFFERENT, bc.getStatus());
+        assertEquals(CompareStatus.PENDING, d.getStatus());
+    }
+
+    @Test
+    void submit_recursive_leavesFolderPairsToResolveFolders() throws Exception {
+        Path dir = Files.createTempDirectory("cmp-");
+        List<String> idle = new CopyOnWriteArrayList<>();
+        try (ComparisonEngine engine = new ComparisonEngine(Runnable::run, 1)) {
+            engine.setRecursive(true);
+            engine.setOnIdle(() -> idle.add("idle"));
+            PairedEntry folderRow = new PairedEntry(folder("sub"), folder("sub"));
+            engine.submit(List.of(folderRow), dir, dir);
+            assertEquals(CompareStatus.PENDING, folderRow.getStatus());
+            assertEquals(List.of("idle"), idle);
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void cancel_dropsResultsOfEarlierSubmissions() throws Exception {
+        Path dir = Files.createTempDirectory("cmp-");
+        List<Runnable> uiQueue = new CopyOnWriteArrayList<>();
+        try (ComparisonEngine engine = new ComparisonEngine(uiQueue::add, 1)) {
+            Files.writeString(dir.resolve("a.txt"), "x");
+            PairedEntry pe = new PairedEntry(file("a.txt", 1), file("a.txt", 1));
+            engine.submit(List.of(pe), dir, dir);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (uiQueue.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            engine.cancel();
+            uiQueue.forEach(Runnable::run);
+            assertEquals(CompareStatus.PENDING, pe.getStatus());
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonSnapshotTest {
+
+    @Test
+    void saveAndLoad_roundTripsRows(@TempDir Path tmp) throws Exception {
+        Path left = Files.createDirectory(tmp.resolve("left"));
+        Path right = Files.createDirectory(tmp.resolve("right"));
+        Files.createDirectories(left.resolve("sub"));
+        Files.createDirectories(right.resolve("sub"));
+        Files.writeString(left.resolve("sub").resolve("a.txt"), "same");
+        Files.writeString(right.resolve("sub").resolve("A.txt"), "same");
+        Files.writeString(left.resolve("only-left.txt"), "x");
+        ContentHashCache cache = new ContentHashCache(10);
+        Path a = left.resolve("sub").resolve("a.txt");
+        cache.digest(a, Files.readAttributes(a, BasicFileAttributes.class));
+
+        List<PairedEntry> rows = scan(left, right);
+        rows.forEach(pe -> pe.setStatus(pe.hasLeft() && pe.hasRight() ? CompareStatus.EQUAL : CompareStatus.DIFFERENT));
+        ComparisonSnapshot snapshot = ComparisonSnapshot.capture(rows, left, right, true, "CONTENT", "-.git", cache);
+        Path file = tmp.resolve("s.fcsnap");
+        snapshot.save(file);
+        ComparisonSnapshot loaded = ComparisonSnapshot.load(file);
+
+        assertEquals(left.toString(), loaded.getLeftRoot());
+        assertTrue(loaded.isRecursive());
+        assertEquals("-.git", loaded.getFilter());
+        assertEquals(rows.size(), loaded.getEntries().size());
+        String nested = "sub" + File.separator;
+        ComparisonSnapshot.Entry pair = loaded.getEntries().stream()
+                .filter(e -> e.name().equalsIgnoreCase(nested + "a.txt")).findFirst().orElseThrow();
+        assertEquals(nested + "a.txt", pair.left().getName());
+        assertEquals(nested + "A.txt", pair.right().getName());
+        assertEquals(4, pair.right().getSize());
+        assertEquals(Files.getLastModifiedTime(a).to(TimeUnit.NANOSECONDS), pair.left().getModifiedNanos());
+        assertNotNull(pair.leftDigest());
+        assertNull(pair.rightDigest());
+        assertEquals(CompareStatus.EQUAL, pair.status());
+        assertTrue(ComparisonSnapshot.diff(snapshot, loaded).isEmpty());
+    }
+
+    @Test
+    void diff_listsAddedRemovedModifiedAndStatusChanges() {
+        ComparisonSnapshot before = snapshot(
+                row(file("a.txt", 1, 10), file("a.txt", 1, 10), CompareStatus.EQUAL),
+                row(file("b.txt", 2, 10), null, CompareStatus.DIFFERENT),
+                row(file("c.txt", 3, 10), file("c.txt", 3, 10), CompareStatus.EQUAL));
+        ComparisonSnapshot after = snapshot(
+                row(file("a.txt", 1, 10), file("a.txt", 5, 20), CompareStatus.DIFFERENT),
+                row(file("c.txt", 3, 10), file("c.txt", 3, 10), CompareStatus.EQUAL),
+                row(null, file("d.txt", 4, 10), CompareStatus.DIFFERENT));
+
+        assertEquals(List.of(
+                new ComparisonSnapshot.Difference("a.txt", null, ComparisonSnapshot.Change.MODIFIED,
+                        CompareStatus.EQUAL, CompareStatus.DIFFERENT),
+                new ComparisonSnapshot.Difference("b.txt", ComparisonSnapshot.Change.REMOVED, null,
+                        CompareStatus.DIFFERENT, null),
+                new ComparisonSnapshot.Difference("d.txt", null, ComparisonSnapshot.Change.ADDED,
+                        null, CompareStatus.DIFFERENT)),
+                ComparisonSnapshot.diff(before, after));
+    }
+
+    @Test
+    void diff_prefersDigestsOverTimes() {
+        byte[] digest = {1, 2, 3};
+        ComparisonSnapshot before = snapshot(new ComparisonSnapshot.Entry(
+                file("a.txt", 3, 10), null, digest, null, CompareStatus.DIFFERENT, null));
+        ComparisonSnapshot touched = snapshot(new ComparisonSnapshot.Entry(
+                file("a.txt", 3, 99), null, digest.clone(), null, CompareStatus.DIFFERENT, null));
+        ComparisonSnapshot flat = new ComparisonSnapshot(0, "l", "r", false, "CONTENT", "", List.of());
+
+        assertTrue(ComparisonSnapshot.diff(before, touched).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ComparisonSnapshot.diff(before, flat));
+    }
+
+    @Test
+    void load_rejectsOtherFiles(@TempDir Path tmp) throws Exception {
+        Path file = Files.writeString(tmp.resolve("x.fcsnap"), "not a snapshot");
+        assertThrows(IOException.class, () -> ComparisonSnapshot.load(file));
+    }
+
+    @Test
+    void load_mapsStatusesByName(@TempDir Path tmp) throws Exception {
+        Path file = tmp.resolve("s.fcsnap");
+        // Header of a snapshot whose status table lists ERROR first, then a status this build does not know
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0x46434353);
+            out.writeInt(2);
+            out.writeLong(0);
+            out.writeUTF("l");
+            out.writeUTF("r");
+            out.writeBoolean(false);
+            out.writeUTF("CONTENT");
+            out.writeUTF("");
+            out.writeByte(2);
+            out.writeUTF("ERROR");
+            out.writeUTF("EQUAL");
+            out.writeInt(1);
+            out.writeByte(1); // left side only
+            out.writeByte(0); // ERROR
+            out.writeByte(0);
+            out.writeUTF("a.txt");
+            out.writeByte(3);
+            out.writeLong(7);
+        }
+        Files.write(file, bytes.toByteArray());
+        assertEquals(CompareStatus.ERROR, ComparisonSnapshot.load(file).getEntries().get(0).status());
+
+        byte[] renamed = bytes.toByteArray();
+        int at = new String(renamed, StandardCharsets.ISO_8859_1).indexOf("EQUAL");
+        renamed[at] = 'X';
+        Files.write(file, renamed);
+        IOException ex = assertThrows(IOException.class, () -> ComparisonSnapshot.load(file));
+        assertTrue(ex.getMessage().startsWith("Damaged snapshot"), ex.getMessage());
+    }
+
+    private static List<PairedEntry> scan(Path left, Path right) {
+        List<PairedEntry> rows = new ArrayList<>();
+        StreamingScanner.scan(left.toString(), right.toString(), true, 16, rows::addAll, () -> false);
+        return rows;
+    }
+
+    private static FileInfo file(String name, long size, long modifiedNanos) {
+        return FileInfo.ofEpochNanos(name, false, size, modifiedNanos);
+    }
+
+    private static ComparisonSnapshot.Entry row(FileInfo left, FileInfo right, CompareStatus status) {
+        return new ComparisonSnapshot.Entry(left, right, null, null, status, null);
+    }
+
+    private static ComparisonSnapshot snapshot(ComparisonSnapshot.Entry... entries) {
+        return new ComparisonSnapshot(0, "l", "r", true, "CONTENT", "", List.of(entries));
+    }
+}
@@ -0,0 +1,82 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonTierTest {
+
+    private static CompareStatus compare(ComparisonStrategy strategy, Path a, Path b) throws Exception {
+        return strategy.compareFiles(a, Files.readAttributes(a, BasicFileAttributes.class),
+                b, Files.readAttributes(b, BasicFileAttributes.class));
+    }
+
+    @Test
+    void metadataTier_decidesOnSizeAndMtimeOnly() throws Exception {
+        Path dir = Files.createTempDirectory("tier-");
+        try {
+            Path a = dir.resolve("a.txt");
+            Path b = dir.resolve("b.txt");
+            Files.writeString(a, "aaaa");
+            Files.writeString(b, "bbbb");
+            FileTime t = FileTime.fromMillis(1_000_000L);
+            Files.setLastModifiedTime(a, t);
+            Files.setLastModifiedTime(b, t);
+
+            // Same size and mtime: metadata cannot see the content difference
+            assertEquals(CompareStatus.EQUAL, compare(ComparisonTier.METADATA.strategy(null), a, b));
+            assertEquals(CompareStatus.DIFFERENT, compare(ComparisonTier.CONTENT.strategy(null), a, b));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void sampledTier_missesUnsampledChange_contentTierEscalates() throws Exception {
+        Path dir = Files.createTempDirectory("tier-");
+        try {
+            byte[] data = new byte[4096];
+            byte[] changed = data.clone();
+            changed[2000] = 1; // between head and tail blocks
+            Path a = dir.resolve("a.bin");
+            Path b = dir.resolve("b.bin");
+            Files.write(a, data);
+            Files.write(b, changed);
+
+            SampledComparison headTailOnly = new SampledComparison(16, 0, false);
+            assertEquals(CompareStatus.PENDING, compare(headTailOnly, a, b));
+            ComparisonStrategy tiered = new TieredComparison(List.of(
+                    new MetadataComparison(false), headTailOnly, new ContentComparison(null)));
+            assertEquals(CompareStatus.DIFFERENT, compare(tiered, a, b));
+
+            changed[2000] = 0;
+            changed[0] = 1; // inside the head block
+            Files.write(b, changed);
+            assertEquals(CompareStatus.DIFFERENT, compare(headTailOnly, a, b));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void metadataTier_differentSizes_isDecisiveWithoutReading() throws Exception {
+        Path dir = Files.createTempDirectory("tier-");
+        try {
+            Path a = dir.resolve("a.txt");
+            Path b = dir.resolve("b.txt");
+            Files.writeString(a, "a");
+            Files.writeString(b, "bb");
+            assertEquals(CompareStatus.DIFFERENT, compare(new MetadataComparison(false), a, b));
+            assertEquals(CompareStatus.PENDING, compare(new MetadataComparison(false), a, a));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+}
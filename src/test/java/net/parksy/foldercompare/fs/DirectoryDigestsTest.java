@@ -0,0 +1,80 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.prefs.ContentHashCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryDigestsTest {
+
+    private static void tree(Path root) throws Exception {
+        Files.createDirectories(root.resolve("sub/deep"));
+        Files.writeString(root.resolve("a.txt"), "alpha");
+        Files.writeString(root.resolve("sub/b.txt"), "beta");
+        Files.writeString(root.resolve("sub/deep/c.txt"), "gamma");
+    }
+
+    @Test
+    void digests_agreeWithTreeAndFolderComparison(@TempDir Path tmp) throws Exception {
+        Path a = tmp.resolve("a");
+        Path b = tmp.resolve("b");
+        tree(a);
+        tree(b);
+        DirectoryDigests digests = new DirectoryDigests(null);
+
+        assertTrue(digests.treeEqual(a, b));
+        assertTrue(digests.flatEqual(a, b));
+
+        // A change deep down: the top folder's own files still match, its tree does not
+        Files.writeString(b.resolve("sub/deep/c.txt"), "GAMMA");
+        assertFalse(digests.treeEqual(a, b));
+        assertTrue(digests.flatEqual(a, b));
+        assertEquals(CompareUtil.treesEqual(a, b), digests.treeEqual(a, b));
+        assertEquals(List.of("sub" + File.separator + "deep" + File.separator + "c.txt"), digests.differences(a, b));
+
+        Files.writeString(b.resolve("extra.txt"), "x");
+        assertFalse(digests.flatEqual(a, b));
+        assertEquals(CompareUtil.directoriesEqual(a, b), digests.flatEqual(a, b));
+    }
+
+    @Test
+    void differentListings_areDecidedWithoutReading(@TempDir Path tmp) throws Exception {
+        Path a = tmp.resolve("a");
+        Path b = tmp.resolve("b");
+        tree(a);
+        tree(b);
+        Files.writeString(b.resolve("a.txt"), "alpha, longer");
+        Files.writeString(b.resolve("sub/deep/c.txt"), "gamma, longer");
+        ContentHashCache cache = new ContentHashCache(100);
+        DirectoryDigests digests = new DirectoryDigests(cache);
+
+        assertFalse(digests.flatEqual(a, b));
+        assertFalse(digests.treeEqual(a, b));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void inPlaceRewrite_invalidatesCachedDigest(@TempDir Path tmp) throws Exception {
+        Path a = tmp.resolve("a");
+        Path b = tmp.resolve("b");
+        tree(a);
+        tree(b);
+        DirectoryDigests digests = new DirectoryDigests(null);
+        assertTrue(digests.flatEqual(a, b));
+
+        // Same size, and the folder's own modification time restored: only the file's mtime moves
+        FileTime folderTime = Files.getLastModifiedTime(b);
+        Files.writeString(b.resolve("a.txt"), "ALPHA");
+        Files.setLastModifiedTime(b.resolve("a.txt"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        Files.setLastModifiedTime(b, folderTime);
+
+        assertFalse(digests.flatEqual(a, b));
+    }
+}
@@ -0,0 +1,107 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.PairedEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntryFilterTest {
+
+    @Test
+    void nameRules() {
+        EntryFilter f = EntryFilter.parse("-.git; -*.TMP\n-build/; -docs/**/draft-?.md");
+        String sep = File.separator;
+
+        assertTrue(f.skipsName(".git"));
+        assertTrue(f.skipsName("sub" + sep + "x.tmp"));
+        assertFalse(f.skipsName("build"));
+        assertFalse(f.accepts("build", true));
+        assertTrue(f.accepts("build", false));
+        assertFalse(f.accepts("docs" + sep + "a" + sep + "draft-1.md", false));
+        assertTrue(f.accepts("draft-1.md", false));
+        assertTrue(f.accepts("src", true));
+
+        assertTrue(f.skipsPath(".git" + sep + "objects" + sep + "ab"));
+        assertTrue(f.skipsPath("build" + sep + "out.class"));
+        assertFalse(f.skipsPath("src" + sep + "Main.java"));
+        assertTrue(f.under("sub").skipsPath("build" + sep + "out.class"));
+        assertTrue(f.under("src").accepts("a" + sep + "draft-1.md", false));
+        assertFalse(f.under("docs").accepts("a" + sep + "draft-1.md", false));
+    }
+
+    @Test
+    void includeRulesKeepFoldersOpen() {
+        EntryFilter f = EntryFilter.parse("+*.java; +re:docs/.*\\.md");
+
+        assertTrue(f.accepts("Main.java", false));
+        assertTrue(f.accepts("docs" + File.separator + "guide.md", false));
+        assertFalse(f.accepts("guide.md", false));
+        assertTrue(f.accepts("anything", true));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.parse("+src/"));
+    }
+
+    @Test
+    void sizeAndAgeRules() {
+        long now = TimeUnit.DAYS.toNanos(1000);
+        EntryFilter f = EntryFilter.parse("size<1K; size>10; age<2d", now);
+
+        assertTrue(f.hasAttributeRules());
+        assertTrue(f.acceptsAttributes(false, 500, now - TimeUnit.DAYS.toNanos(1)));
+        assertFalse(f.acceptsAttributes(false, 1024, now));
+        assertFalse(f.acceptsAttributes(false, 10, now));
+        assertFalse(f.acceptsAttributes(false, 500, now - TimeUnit.DAYS.toNanos(3)));
+        assertTrue(f.acceptsAttributes(true, 1 << 20, 0));
+        assertFalse(EntryFilter.parse("-x").hasAttributeRules());
+        assertTrue(EntryFilter.parse(" ").isEmpty());
+    }
+
+    @Test
+    void badRules_areReported() {
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.parse("*.tmp"));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.parse("size<10X"));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.parse("age>5"));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.parse("-re:("));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.parse("size<99999999999T"));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.parse("age>99999999999999999w"));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.parse("size>99999999999999999999"));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.parse("-x;".repeat(3000)));
+    }
+
+    @Test
+    void scan_leavesExcludedEntriesOut(@TempDir Path tmp) throws Exception {
+        Path left = Files.createDirectory(tmp.resolve("left"));
+        Path right = Files.createDirectory(tmp.resolve("right"));
+        for (Path side : List.of(left, right)) {
+            Files.createDirectories(side.resolve(".git").resolve("objects"));
+            Files.writeString(side.resolve(".git").resolve("HEAD"), "ref");
+            Files.createDirectory(side.resolve("src"));
+            Files.writeString(side.resolve("src").resolve("Main.java"), "class Main {}");
+        }
+        Files.writeString(left.resolve("scratch.tmp"), "x");
+        Files.writeString(right.resolve("src").resolve("cache.tmp"), "y");
+
+        EntryFilter filter = EntryFilter.parse("-.git; -*.tmp");
+        for (boolean recursive : new boolean[]{false, true}) {
+            List<String> names = new ArrayList<>();
+            StreamingScanner.scan(left.toString(), right.toString(), recursive, filter, 2,
+                    batch -> batch.forEach(pe -> names.add(name(pe))), () -> false);
+
+            List<String> expected = recursive
+                    ? List.of("src", "src" + File.separator + "Main.java")
+                    : List.of("src");
+            assertEquals(expected, names, "recursive=" + recursive);
+        }
+    }
+
+    private static String name(PairedEntry pe) {
+        return (pe.getLeft() != null ? pe.getLeft() : pe.getRight()).getName();
+    }
+}
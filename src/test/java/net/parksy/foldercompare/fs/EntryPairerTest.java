@@ -0,0 +1,66 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import net.parksy.foldercompare.model.ScanSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntryPairerTest {
+
+    private static Map<String, FileInfo> sortedMap(TreeSet<String> names) {
+        Map<String, FileInfo> map = new LinkedHashMap<>();
+        for (String n : names) map.put(n, new FileInfo(n, false, n.length(), Instant.EPOCH));
+        return map;
+    }
+
+    @Test
+    void pair_matchesSetUnionWithLookups() {
+        Random rnd = new Random(42);
+        TreeSet<String> left = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        TreeSet<String> right = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < 2000; i++) {
+            String n = "f" + rnd.nextInt(3000);
+            if (rnd.nextBoolean()) left.add(n); else right.add(n);
+            if (rnd.nextInt(4) == 0) { left.add(n); right.add(n); }
+        }
+        Map<String, FileInfo> lm = sortedMap(left);
+        Map<String, FileInfo> rm = sortedMap(right);
+
+        TreeSet<String> union = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        union.addAll(lm.keySet());
+        union.addAll(rm.keySet());
+        List<PairedEntry> rows = EntryPairer.pair(lm, rm);
+        assertEquals(union.size(), rows.size());
+        int k = 0;
+        for (String n : union) {
+            PairedEntry pe = rows.get(k++);
+            assertSame(lm.get(n), pe.getLeft());
+            assertSame(rm.get(n), pe.getRight());
+        }
+    }
+
+    @Test
+    void merge_snapshots_pairsByRelativePathAndStops() {
+        ScanSnapshot left = new ScanSnapshot.Builder()
+                .add("a", true, -1, 0).add("a/x", false, 1, 0).add("b", false, 2, 0).build();
+        ScanSnapshot right = new ScanSnapshot.Builder()
+                .add("A", true, -1, 0).add("a-b", false, 3, 0).build();
+        List<String> rows = new ArrayList<>();
+        EntryPairer.merge(left, right, (i, j) -> rows.add(i + ":" + j));
+        assertEquals(List.of("0:0", "1:-1", "-1:1", "2:-1"), rows);
+
+        rows.clear();
+        assertFalse(EntryPairer.merge(left, right, (i, j) -> rows.add(i + ":" + j) && rows.size() < 2));
+        assertEquals(2, rows.size());
+    }
+}
@@ -0,0 +1,225 @@
+package net.parksy.foldercompare.fs;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileOperationsTest {
+
+    @Test
+    void copyRecursive_reportsBytesAndFiles() throws Exception {
+        Path src = Files.createTempDirectory("src-");
+        Path dst = Files.createTempDirectory("dst-");
+        try {
+            Files.createDirectories(src.resolve("sub"));
+            Files.writeString(src.resolve("a.txt"), "12345");
+            Files.writeString(src.resolve("sub/b.txt"), "678");
+
+            TransferProgress progress = new TransferProgress();
+            FileOperations.measure(src, progress);
+            assertEquals(2L, progress.getFilesTotal());
+            assertEquals(8L, progress.getBytesTotal());
+
+            FileOperations.copyRecursive(src, dst.resolve("copy"), progress);
+            assertEquals(2L, progress.getFilesDone());
+            assertEquals(8L, progress.getBytesDone());
+            assertEquals("678", Files.readString(dst.resolve("copy/sub/b.txt")));
+        } finally {
+            FileOperations.deleteRecursive(src);
+            FileOperations.deleteRecursive(dst);
+        }
+    }
+
+    @Test
+    void copyRecursive_cancelled_stopsBeforeCopying() throws Exception {
+        Path src = Files.createTempDirectory("src-");
+        Path dst = Files.createTempDirectory("dst-");
+        try {
+            Files.writeString(src.resolve("a.txt"), "data");
+            TransferProgress progress = new TransferProgress();
+            progress.cancel();
+            assertThrows(CancellationException.class,
+                    () -> FileOperations.copyRecursive(src, dst.resolve("copy"), progress));
+            assertFalse(Files.exists(dst.resolve("copy/a.txt")));
+        } finally {
+            FileOperations.deleteRecursive(src);
+            FileOperations.deleteRecursive(dst);
+        }
+    }
+
+    @Test
+    void copyRecursive_ontoItself_keepsContent() throws Exception {
+        Path dir = Files.createTempDirectory("cp-");
+        try {
+            Path a = dir.resolve("a.txt");
+            Files.writeString(a, "keep me");
+            TransferProgress progress = new TransferProgress();
+            FileOperations.copyRecursive(a, dir.resolve(".").resolve("a.txt"), progress);
+            assertEquals("keep me", Files.readString(a));
+            assertEquals(1L, progress.getFilesDone());
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void copyFile_cancelled_leavesExistingDestination() throws Exception {
+        Path dir = Files.createTempDirectory("cp-");
+        try {
+            Path a = Files.writeString(dir.resolve("a.txt"), "new");
+            Path b = Files.writeString(dir.resolve("b.txt"), "old");
+            TransferProgress progress = new TransferProgress();
+            progress.cancel();
+            assertThrows(CancellationException.class, () -> FileOperations.copyFile(a, b, progress));
+            assertEquals("old", Files.readString(b));
+            try (var files = Files.list(dir)) {
+                assertEquals(2, files.count());
+            }
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void copyRecursive_overwritesExistingFile() throws Exception {
+        Path dir = Files.createTempDirectory("cp-");
+        try {
+            Path a = dir.resolve("a.txt");
+            Path b = dir.resolve("b.txt");
+            Files.writeString(a, "new");
+            Files.writeString(b, "older content");
+            FileOperations.copyRecursive(a, b);
+            assertEquals("new", Files.readString(b));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void deltaCopy_rewritesOnlyChangedBlocksAndFixesLength() throws Exception {
+        Path dir = Files.createTempDirectory("delta-");
+        try {
+            byte[] content = new byte[10 * 1024 + 100];
+            for (int i = 0; i < content.length; i++) content[i] = (byte) (i * 31);
+            byte[] old = java.util.Arrays.copyOf(content, content.length + 5000);
+            old[3 * 1024 + 7] ^= 1;
+            old[8 * 1024] ^= 1;
+            Path src = Files.write(dir.resolve("src.bin"), content);
+            Path dst = Files.write(dir.resolve("dst.bin"), old);
+
+            TransferProgress progress = new TransferProgress();
+            assertEquals(2 * 1024, DeltaCopy.update(src, dst, 1024, progress));
+            assertArrayEquals(content, Files.readAllBytes(dst));
+            assertEquals(content.length, progress.getBytesDone());
+            assertEquals(content.length - 2 * 1024, progress.getBytesInPlace());
+            assertEquals(1, progress.getFilesDone());
+
+            // Growing the file rewrites only the blocks reaching past the old end (10240..11840)
+            byte[] longer = java.util.Arrays.copyOf(content, content.length + 1500);
+            Files.write(src, longer);
+            assertEquals(1600, DeltaCopy.update(src, dst, 1024, new TransferProgress()));
+            assertArrayEquals(longer, Files.readAllBytes(dst));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void parallelCopier_copiesMixedSizesAcrossBothPools() throws Exception {
+        Path src = Files.createTempDirectory("src-");
+        Path dst = Files.createTempDirectory("dst-");
+        try {
+            for (int d = 0; d < 5; d++) {
+                Path dir = Files.createDirectories(src.resolve("d" + d).resolve("nested"));
+                for (int f = 0; f < 20; f++) {
+                    Files.write(dir.resolve("f" + f + ".bin"), new byte[f * 17]);
+                }
+            }
+            Files.createDirectories(src.resolve("empty"));
+
+            TransferProgress progress = new TransferProgress();
+            try (ParallelCopier copier = new ParallelCopier(progress, 4, 2, 100)) {
+                copier.copy(src, dst.resolve("copy"));
+            }
+            assertEquals(100L, progress.getFilesDone());
+            assertTrue(Files.isDirectory(dst.resolve("copy/empty")));
+            assertTrue(CompareUtil.treesEqual(src, dst.resolve("copy")));
+        } finally {
+            FileOperations.deleteRecursive(src);
+            FileOperations.deleteRecursive(dst);
+        }
+    }
+
+    @Test
+    void moveRecursive_sameStore_renamesWithoutCopying() throws Exception {
+        Path dir = Files.createTempDirectory("mv-");
+        try {
+            Path src = Files.createDirectories(dir.resolve("src/sub"));
+            Files.writeString(src.resolve("a.txt"), "a");
+            Object key = Files.readAttributes(src.resolve("a.txt"), BasicFileAttributes.class).fileKey();
+
+            FileOperations.moveRecursive(dir.resolve("src"), dir.resolve("out/dst"));
+            assertFalse(Files.exists(dir.resolve("src")));
+            Path moved = dir.resolve("out/dst/sub/a.txt");
+            assertEquals("a", Files.readString(moved));
+            if (key != null) {
+                assertEquals(key, Files.readAttributes(moved, BasicFileAttributes.class).fileKey());
+            }
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void moveRecursive_existingDestination_mergesEntries() throws Exception {
+        Path dir = Files.createTempDirectory("mv-");
+        try {
+            Files.createDirectories(dir.resolve("src/sub"));
+            Files.writeString(dir.resolve("src/sub/a.txt"), "new");
+            Files.writeString(dir.resolve("src/b.txt"), "b");
+            Files.createDirectories(dir.resolve("dst/sub"));
+            Files.writeString(dir.resolve("dst/sub/a.txt"), "old");
+            Files.writeString(dir.resolve("dst/keep.txt"), "keep");
+
+            TransferProgress progress = new TransferProgress();
+            FileOperations.moveRecursive(dir.resolve("src"), dir.resolve("dst"), progress);
+            assertFalse(Files.exists(dir.resolve("src")));
+            assertEquals("new", Files.readString(dir.resolve("dst/sub/a.txt")));
+            assertEquals("b", Files.readString(dir.resolve("dst/b.txt")));
+            assertEquals("keep", Files.readString(dir.resolve("dst/keep.txt")));
+            assertEquals(2L, progress.getFilesDone());
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void bulkDeleter_removesWideAndDeepTree() throws Exception {
+        Path root = Files.createTempDirectory("del-");
+        Path wide = Files.createDirectories(root.resolve("wide"));
+        for (int i = 0; i < BulkDeleter.BATCH_SIZE * 2 + 3; i++) {
+            Files.writeString(wide.resolve("f" + i), "x");
+        }
+        Path deep = root;
+        for (int i = 0; i < 10; i++) {
+            deep = Files.createDirectories(deep.resolve("d" + i));
+            Files.writeString(deep.resolve("leaf"), "yy");
+        }
+
+        TransferProgress progress = new TransferProgress();
+        BulkDeleter.Result result = BulkDeleter.delete(root, progress);
+        assertTrue(result.isComplete());
+        assertEquals(BulkDeleter.BATCH_SIZE * 2 + 3 + 10, result.filesDeleted());
+        assertEquals(12, result.directoriesDeleted());
+        assertEquals(BulkDeleter.BATCH_SIZE * 2 + 3 + 20, progress.getBytesDone());
+        assertFalse(Files.exists(root));
+
+        // Missing root is not an error
+        assertTrue(BulkDeleter.delete(root, progress).isComplete());
+    }
+}
@@ -0,0 +1,90 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.Constants;
+import net.parksy.foldercompare.prefs.ContentHashCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenameDetectorTest {
+
+    @Test
+    void linksRenamedAndMovedFilesByContent(@TempDir Path tmp) throws Exception {
+        Path left = Files.createDirectory(tmp.resolve("left"));
+        Path right = Files.createDirectory(tmp.resolve("right"));
+        Files.createDirectory(right.resolve("sub"));
+        Files.writeString(left.resolve("old.txt"), "renamed content");
+        Files.writeString(right.resolve("new.txt"), "renamed content");
+        Files.writeString(left.resolve("moved.txt"), "moved content!");
+        Files.writeString(right.resolve("sub").resolve("moved.txt"), "moved content!");
+        Files.writeString(left.resolve("a.txt"), "same size A");
+        Files.writeString(right.resolve("b.txt"), "same size B");
+        Files.createFile(left.resolve("empty-left"));
+        Files.createFile(right.resolve("empty-right"));
+
+        String moved = "sub" + File.separator + "moved.txt";
+        List<RenameDetector.Match> matches = RenameDetector.detect(
+                left, candidates(left, "old.txt", "moved.txt", "a.txt", "empty-left"),
+                right, candidates(right, "new.txt", moved, "b.txt", "empty-right"),
+                null, () -> false);
+
+        assertEquals(List.of(
+                new RenameDetector.Match("moved.txt", moved),
+                new RenameDetector.Match("old.txt", "new.txt")), matches);
+    }
+
+    @Test
+    void largeFilesDifferingOnlyInTheMiddle_areNotLinked(@TempDir Path tmp) throws Exception {
+        int size = Constants.RENAME_PARTIAL_HASH_BYTES * 3;
+        byte[] a = new byte[size];
+        byte[] b = Arrays.copyOf(a, size);
+        b[size / 2] = 1;
+        Files.write(tmp.resolve("a.bin"), a);
+        Files.write(tmp.resolve("b.bin"), b);
+        Files.write(tmp.resolve("c.bin"), a);
+
+        assertEquals(List.of(new RenameDetector.Match("a.bin", "c.bin")), RenameDetector.detect(
+                tmp, candidates(tmp, "a.bin"), tmp, candidates(tmp, "b.bin", "c.bin"), null, () -> false));
+    }
+
+    @Test
+    void cancelled_stopsBetweenFiles(@TempDir Path tmp) throws Exception {
+        byte[] content = new byte[Constants.RENAME_PARTIAL_HASH_BYTES * 3];
+        for (String name : List.of("a.bin", "b.bin", "c.bin")) Files.write(tmp.resolve(name), content);
+        ContentHashCache cache = new ContentHashCache(10);
+
+        // Cancelled as soon as the first full hash is stored: the other files are not read
+        assertEquals(List.of(), RenameDetector.detect(tmp, candidates(tmp, "a.bin"), tmp, candidates(tmp, "b.bin", "c.bin"),
+                cache, () -> cache.size() > 0));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void duplicatesPairSameFileNameFirst(@TempDir Path tmp) throws Exception {
+        Path left = Files.createDirectory(tmp.resolve("left"));
+        Path right = Files.createDirectory(tmp.resolve("right"));
+        Files.createDirectory(right.resolve("x"));
+        Files.writeString(left.resolve("copy.txt"), "dup");
+        Files.writeString(right.resolve("a.txt"), "dup");
+        Files.writeString(right.resolve("x").resolve("copy.txt"), "dup");
+
+        String expected = "x" + File.separator + "copy.txt";
+        assertEquals(List.of(new RenameDetector.Match("copy.txt", expected)), RenameDetector.detect(
+                left, candidates(left, "copy.txt"), right, candidates(right, "a.txt", expected), null, () -> false));
+    }
+
+    private static List<RenameDetector.Candidate> candidates(Path root, String... names) throws Exception {
+        RenameDetector.Candidate[] out = new RenameDetector.Candidate[names.length];
+        for (int i = 0; i < names.length; i++) {
+            out[i] = new RenameDetector.Candidate(names[i], Files.size(root.resolve(names[i])));
+        }
+        return List.of(out);
+    }
+}
@@ -2,9 +2,12 @@ package net.parksy.foldercompare.fs;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import net.parksy.foldercompare.model.FileInfo;
@@ -69,4 +72,27 @@ class ResourceBasedFsTest {
         assertTrue(dir.isDirectory());
         assertEquals(-1L, dir.getSize());
     }
+
+    @Test
+    void scanTree_fromResources_listsNestedEntriesInTreeOrder() {
+        Path d1 = resourceDir("folder1");
+        Map<String, FileInfo> map = DirectoryScanner.scanTree(d1.toString());
+        String nested = "sub" + File.separator + "nested.txt";
+        assertTrue(map.containsKey("both.txt"));
+        assertTrue(map.containsKey("sub"));
+        assertTrue(map.containsKey(nested));
+        assertEquals(nested, map.get(nested).getName());
+
+        List<String> keys = new ArrayList<>(map.keySet());
+        assertEquals(keys.indexOf("sub") + 1, keys.indexOf(nested));
+        List<String> sorted = new ArrayList<>(keys);
+        sorted.sort(DirectoryScanner.RELATIVE_PATH_ORDER);
+        assertEquals(sorted, keys);
+    }
+
+    @Test
+    void treesEqual_differentResourceFolders_false() {
+        assertFalse(CompareUtil.treesEqual(resourceDir("folder1"), resourceDir("folder2")));
+        assertTrue(CompareUtil.treesEqual(resourceDir("folder1"), resourceDir("folder1")));
+    }
 }
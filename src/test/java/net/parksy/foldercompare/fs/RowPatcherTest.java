@@ -0,0 +1,113 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowPatcherTest {
+
+    private static FileInfo file(String name) {
+        return new FileInfo(name, false, 1, Instant.EPOCH);
+    }
+
+    private static FileInfo dir(String name) {
+        return new FileInfo(name, true, -1, Instant.EPOCH);
+    }
+
+    private static String describe(List<PairedEntry> rows) {
+        return rows.stream()
+                .map(pe -> (pe.hasLeft() ? pe.getLeft().getName() : "-") + "|" + (pe.hasRight() ? pe.getRight().getName() : "-"))
+                .collect(Collectors.joining(","));
+    }
+
+    @Test
+    void patchesRowsFromDiskKeepingOrder(@TempDir Path tmp) throws Exception {
+        Path left = Files.createDirectory(tmp.resolve("L"));
+        Path right = Files.createDirectory(tmp.resolve("R"));
+        Files.writeString(left.resolve("a.txt"), "a");
+        Files.writeString(right.resolve("a.txt"), "a");
+        Files.writeString(left.resolve("c.txt"), "c");
+
+        List<PairedEntry> rows = new ArrayList<>();
+        StreamingScanner.scan(left.toString(), right.toString(), false, 64, rows::addAll, () -> false);
+        assertEquals("a.txt|a.txt,c.txt|-", describe(rows));
+
+        // b.txt appears on the right, a.txt is deleted on the left, c.txt grows
+        Files.writeString(right.resolve("b.txt"), "b");
+        Files.delete(left.resolve("a.txt"));
+        Files.writeString(left.resolve("c.txt"), "cccc");
+        List<PairedEntry> changed = RowPatcher.apply(rows,
+                RowPatcher.restat(left, right, List.of("b.txt", "a.txt", "c.txt")), false);
+
+        assertEquals("-|a.txt,-|b.txt,c.txt|-", describe(rows));
+        assertEquals(3, changed.size());
+        assertEquals(4, rows.get(2).getLeft().getSize());
+
+        // Gone from both sides: the row is removed
+        Files.delete(right.resolve("b.txt"));
+        RowPatcher.apply(rows, RowPatcher.restat(left, right, List.of("b.txt")), false);
+        assertEquals("-|a.txt,c.txt|-", describe(rows));
+    }
+
+    @Test
+    void folderRemovedFromOneSide_dropsThatSideBelowIt() {
+        String sep = File.separator;
+        List<PairedEntry> rows = new ArrayList<>(List.of(
+                new PairedEntry(dir("d"), dir("d")),
+                new PairedEntry(file("d" + sep + "x"), file("d" + sep + "x")),
+                new PairedEntry(file("d" + sep + "y"), null),
+                new PairedEntry(file("e"), file("e"))));
+
+        List<PairedEntry> changed = RowPatcher.apply(rows, List.of(new RowPatcher.Patch("d", null, dir("d"))), true);
+
+        assertEquals("-|d,-|d" + sep + "x,e|e", describe(rows));
+        assertEquals(2, changed.size());
+    }
+
+    @Test
+    void caseVariantSideIsKept() {
+        List<PairedEntry> rows = new ArrayList<>(List.of(new PairedEntry(file("File1.txt"), file("file1.txt"))));
+
+        RowPatcher.apply(rows, List.of(new RowPatcher.Patch("file1.txt", null, null)), false);
+
+        assertEquals("File1.txt|-", describe(rows));
+    }
+
+    @Test
+    void touchedPaths_mapToRowNames(@TempDir Path tmp) throws Exception {
+        String sep = File.separator;
+        Path root = tmp.resolve("L");
+        Files.createDirectories(root.resolve("d/e"));
+        Files.writeString(root.resolve("d/e/f.txt"), "f");
+
+        Set<String> level = new TreeSet<>();
+        RowPatcher.addRowNames(root, root.resolve("d/e/f.txt"), false, level);
+        RowPatcher.addRowNames(root, tmp.resolve("R/x"), false, level);
+        assertEquals(Set.of("d"), level);
+
+        Set<String> tree = new TreeSet<>();
+        RowPatcher.addRowNames(root, root.resolve("d/e"), true, tree);
+        RowPatcher.addSubtreeNames(root, "d" + sep + "e", tree);
+        assertEquals(Set.of("d", "d" + sep + "e", "d" + sep + "e" + sep + "f.txt"), tree);
+
+        List<PairedEntry> rows = List.of(
+                new PairedEntry(dir("d"), null),
+                new PairedEntry(file("d" + sep + "a"), null),
+                new PairedEntry(null, file("D" + sep + "b")),
+                new PairedEntry(file("d-x"), null));
+        assertEquals(List.of("d" + sep + "a", "D" + sep + "b"), RowPatcher.rowsBelow(rows, "d"));
+    }
+}
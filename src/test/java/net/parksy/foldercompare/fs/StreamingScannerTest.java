@@ -0,0 +1,71 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingScannerTest {
+
+    private static String key(PairedEntry pe) {
+        return pe.getLeftName() + "|" + pe.getRightName() + "|" + pe.getLeftSizeDisplay() + "|" + pe.getRightSizeDisplay();
+    }
+
+    @Test
+    void scan_batchesConcatenateToFullScanOrder() throws Exception {
+        Path left = Files.createTempDirectory("left-");
+        Path right = Files.createTempDirectory("right-");
+        try {
+            for (int i = 0; i < 25; i++) {
+                Files.writeString(left.resolve("File" + i + ".txt"), "l" + i);
+                if (i % 3 != 0) Files.writeString(right.resolve("file" + i + ".txt"), "r" + i);
+            }
+            Files.createDirectories(left.resolve("Dir"));
+            Files.createDirectories(right.resolve("other"));
+
+            // Expected: the pairing of two complete scans in one go
+            Map<String, FileInfo> lm = DirectoryScanner.scanDir(left.toString());
+            Map<String, FileInfo> rm = DirectoryScanner.scanDir(right.toString());
+            List<String> expected = new ArrayList<>();
+            for (PairedEntry pe : EntryPairer.pair(lm, rm)) {
+                expected.add(key(pe));
+            }
+            // Names differing only by case share a row
+            assertTrue(expected.contains("File1.txt|file1.txt|2|2"));
+
+            List<Integer> batchSizes = new ArrayList<>();
+            List<String> actual = new ArrayList<>();
+            StreamingScanner.scan(left.toString(), right.toString(), false, 4, batch -> {
+                batchSizes.add(batch.size());
+                batch.forEach(pe -> actual.add(key(pe)));
+            }, () -> false);
+
+            assertEquals(expected, actual);
+            assertTrue(batchSizes.size() > 1);
+            assertTrue(batchSizes.stream().allMatch(n -> n <= 4));
+        } finally {
+            FileOperations.deleteRecursive(left);
+            FileOperations.deleteRecursive(right);
+        }
+    }
+
+    @Test
+    void scan_cancelled_emitsNothing() throws Exception {
+        Path dir = Files.createTempDirectory("cmp-");
+        try {
+            Files.writeString(dir.resolve("a.txt"), "a");
+            List<PairedEntry> seen = new ArrayList<>();
+            StreamingScanner.scan(dir.toString(), dir.toString(), false, 4, seen::addAll, () -> true);
+            assertTrue(seen.isEmpty());
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+}
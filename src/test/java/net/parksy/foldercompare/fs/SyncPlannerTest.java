@@ -0,0 +1,154 @@
+package net.parksy.foldercompare.fs;
+
+import net.parksy.foldercompare.model.CompareStatus;
+import net.parksy.foldercompare.model.FileInfo;
+import net.parksy.foldercompare.model.PairedEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncPlannerTest {
+
+    private static PairedEntry row(FileInfo left, FileInfo right, CompareStatus status) {
+        PairedEntry pe = new PairedEntry(left, right);
+        pe.setStatus(status);
+        return pe;
+    }
+
+    private static FileInfo file(Path root, String name) throws Exception {
+        return new FileInfo(name, false, Files.size(root.resolve(name)), Instant.EPOCH);
+    }
+
+    private static FileInfo dir(String name) {
+        return new FileInfo(name, true, -1, Instant.EPOCH);
+    }
+
+    @Test
+    void recursivePlan_runsInPhasesAndMakesTargetMatch(@TempDir Path tmp) throws Exception {
+        Path left = Files.createDirectory(tmp.resolve("L"));
+        Path right = Files.createDirectory(tmp.resolve("R"));
+        Files.createDirectories(left.resolve("new"));
+        Files.writeString(left.resolve("new").resolve("n.txt"), "new file");
+        Files.writeString(left.resolve("same.txt"), "same");
+        Files.writeString(right.resolve("same.txt"), "same");
+        Files.writeString(left.resolve("changed.txt"), "version 2");
+        Files.writeString(right.resolve("changed.txt"), "version 1");
+        Files.writeString(left.resolve("renamed.txt"), "moved around");
+        Files.createDirectories(right.resolve("gone"));
+        Files.writeString(right.resolve("gone").resolve("old-name.txt"), "moved around");
+        Files.writeString(right.resolve("gone").resolve("x.txt"), "x");
+
+        String n = "new" + File.separator + "n.txt";
+        String oldName = "gone" + File.separator + "old-name.txt";
+        String x = "gone" + File.separator + "x.txt";
+        PairedEntry renamedLeft = row(file(left, "renamed.txt"), null, CompareStatus.RELOCATED);
+        renamedLeft.setCounterpart(oldName);
+        PairedEntry renamedRight = row(null, file(right, oldName), CompareStatus.RELOCATED);
+        renamedRight.setCounterpart("renamed.txt");
+        List<PairedEntry> rows = List.of(
+                row(file(left, "changed.txt"), file(right, "changed.txt"), CompareStatus.DIFFERENT),
+                row(null, dir("gone"), CompareStatus.DIFFERENT),
+                renamedRight,
+                row(null, file(right, x), CompareStatus.DIFFERENT),
+                row(dir("new"), null, CompareStatus.DIFFERENT),
+                row(file(left, n), null, CompareStatus.DIFFERENT),
+                renamedLeft,
+                row(file(left, "same.txt"), file(right, "same.txt"), CompareStatus.EQUAL));
+
+        SyncPlanner.Plan plan = SyncPlanner.plan(rows, left, right, true, true, true);
+        assertEquals(List.of(
+                new SyncPlanner.Action(SyncPlanner.Type.CREATE_FOLDER, "new", "new", 0, true),
+                new SyncPlanner.Action(SyncPlanner.Type.RENAME, oldName, "renamed.txt", 12, false),
+                new SyncPlanner.Action(SyncPlanner.Type.UPDATE, "changed.txt", "changed.txt", 9, false),
+                new SyncPlanner.Action(SyncPlanner.Type.COPY, n, n, 8, false),
+                new SyncPlanner.Action(SyncPlanner.Type.DELETE, "gone", "gone", -1, true)), plan.actions());
+        assertEquals(17, plan.bytes());
+
+        List<TransferResult> results = SyncPlanner.execute(plan, new TransferProgress());
+        assertTrue(results.stream().allMatch(r -> r.outcome() == TransferResult.Outcome.DONE), results.toString());
+        assertEquals("version 2", Files.readString(right.resolve("changed.txt")));
+        assertEquals("new file", Files.readString(right.resolve(n)));
+        assertEquals("moved around", Files.readString(right.resolve("renamed.txt")));
+        assertFalse(Files.exists(right.resolve("gone")));
+    }
+
+    @Test
+    void withoutDeletes_orphansStayAndRelocatedFilesAreCopied(@TempDir Path tmp) throws Exception {
+        Path left = Files.createDirectory(tmp.resolve("L"));
+        Path right = Files.createDirectory(tmp.resolve("R"));
+        Files.writeString(left.resolve("a.txt"), "content");
+        Files.writeString(right.resolve("b.txt"), "content");
+        Files.createDirectories(right.resolve("conflict"));
+        Files.writeString(left.resolve("conflict"), "file");
+        PairedEntry a = row(file(left, "a.txt"), null, CompareStatus.RELOCATED);
+        a.setCounterpart("b.txt");
+        PairedEntry b = row(null, file(right, "b.txt"), CompareStatus.RELOCATED);
+        b.setCounterpart("a.txt");
+
+        SyncPlanner.Plan plan = SyncPlanner.plan(List.of(a, b,
+                row(file(left, "conflict"), dir("conflict"), CompareStatus.DIFFERENT)), left, right, true, false, false);
+        assertEquals(List.of(new SyncPlanner.Action(SyncPlanner.Type.COPY, "a.txt", "a.txt", 7, false)), plan.actions());
+        assertEquals(List.of("conflict"), plan.skipped());
+
+        SyncPlanner.execute(plan, new TransferProgress());
+        assertEquals("content", Files.readString(right.resolve("a.txt")));
+        assertEquals("content", Files.readString(right.resolve("b.txt")));
+    }
+
+    @Test
+    void flatPlan_deletesExtrasInsideDifferingFolders(@TempDir Path tmp) throws Exception {
+        Path left = Files.createDirectory(tmp.resolve("L"));
+        Path right = Files.createDirectory(tmp.resolve("R"));
+        for (Path side : List.of(left, right)) {
+            Files.createDirectories(side.resolve("docs").resolve("kept"));
+            Files.writeString(side.resolve("docs").resolve("kept").resolve("k.txt"), "k");
+        }
+        Files.writeString(left.resolve("docs").resolve("a.txt"), "new");
+        Files.writeString(right.resolve("docs").resolve("a.txt"), "old");
+        Files.writeString(right.resolve("docs").resolve("extra.txt"), "extra");
+        Files.createDirectories(right.resolve("docs").resolve("stale"));
+        Files.writeString(right.resolve("docs").resolve("stale").resolve("s.txt"), "s");
+        List<PairedEntry> rows = List.of(row(dir("docs"), dir("docs"), CompareStatus.DIFFERENT));
+
+        assertEquals(List.of(new SyncPlanner.Action(SyncPlanner.Type.UPDATE, "docs", "docs", -1, true)),
+                SyncPlanner.plan(rows, left, right, true, false, false).actions());
+        SyncPlanner.Plan plan = SyncPlanner.plan(rows, left, right, true, false, true);
+        assertEquals(List.of(
+                new SyncPlanner.Action(SyncPlanner.Type.UPDATE, "docs", "docs", -1, true),
+                new SyncPlanner.Action(SyncPlanner.Type.PRUNE, "docs", "docs", 0, true)), plan.actions());
+
+        List<TransferResult> results = SyncPlanner.execute(plan, new TransferProgress());
+        assertTrue(results.stream().allMatch(r -> r.outcome() == TransferResult.Outcome.DONE), results.toString());
+        assertEquals("new", Files.readString(right.resolve("docs").resolve("a.txt")));
+        assertTrue(Files.exists(right.resolve("docs").resolve("kept").resolve("k.txt")));
+        assertFalse(Files.exists(right.resolve("docs").resolve("extra.txt")));
+        assertFalse(Files.exists(right.resolve("docs").resolve("stale")));
+    }
+
+    @Test
+    void rename_copiesFromSourceWhenTheTwinChanged(@TempDir Path tmp) throws Exception {
+        Path left = Files.createDirectory(tmp.resolve("L"));
+        Path right = Files.createDirectory(tmp.resolve("R"));
+        Files.writeString(left.resolve("a.txt"), "content");
+        Files.writeString(right.resolve("b.txt"), "content");
+        PairedEntry a = row(file(left, "a.txt"), null, CompareStatus.RELOCATED);
+        a.setCounterpart("b.txt");
+        PairedEntry b = row(null, file(right, "b.txt"), CompareStatus.RELOCATED);
+        b.setCounterpart("a.txt");
+        SyncPlanner.Plan plan = SyncPlanner.plan(List.of(a, b), left, right, true, false, true);
+        assertEquals(List.of(new SyncPlanner.Action(SyncPlanner.Type.RENAME, "b.txt", "a.txt", 7, false)), plan.actions());
+
+        Files.writeString(right.resolve("b.txt"), "edited!");
+        List<TransferResult> results = SyncPlanner.execute(plan, new TransferProgress());
+        assertEquals(TransferResult.Outcome.DONE, results.get(0).outcome());
+        assertEquals("content", Files.readString(right.resolve("a.txt")));
+        assertFalse(Files.exists(right.resolve("b.txt")));
+    }
+}
@@ -0,0 +1,47 @@
+package net.parksy.foldercompare.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PairedEntryTest {
+
+    @Test
+    void fileInfo_keepsNanosecondModificationTime() {
+        Instant t = Instant.ofEpochSecond(1_700_000_000L, 123_456_789L);
+        FileInfo fi = new FileInfo("a.txt", false, 3, t);
+        assertEquals(t, fi.getModified());
+        assertNull(new FileInfo("b", true, -1, null).getModified());
+
+        PairedEntry pe = new PairedEntry(fi, new FileInfo("a.txt", false, 3, t.plusNanos(1)));
+        assertTrue(pe.isDifferent());
+        assertFalse(new PairedEntry(fi, new FileInfo("a.txt", false, 3, t)).isDifferent());
+    }
+
+    @Test
+    void status_survivesLazyPropertyCreation() {
+        PairedEntry pe = new PairedEntry(new FileInfo("a", false, 1, Instant.EPOCH), null);
+        assertEquals(CompareStatus.PENDING, pe.getStatus());
+        pe.setStatus(CompareStatus.DIFFERENT);
+        assertEquals(CompareStatus.DIFFERENT, pe.statusProperty().get());
+        pe.setStatus(CompareStatus.EQUAL);
+        assertEquals(CompareStatus.EQUAL, pe.statusProperty().get());
+        assertEquals(CompareStatus.EQUAL, pe.getStatus());
+    }
+
+    @Test
+    void displayTexts_areComputedOncePerRow() {
+        Instant t = Instant.parse("2024-03-01T10:15:30.250Z");
+        PairedEntry pe = new PairedEntry(new FileInfo("dir", true, -1, t), new FileInfo("dir", true, -1, t.plusMillis(100)));
+        String name = pe.getLeftName();
+        assertEquals("dir" + java.io.File.separator, name);
+        assertSame(name, pe.getLeftName());
+        assertSame(pe.getLeftModifiedDisplay(), pe.getLeftModifiedDisplay());
+        // Same second: the formatted text is shared between entries
+        assertSame(pe.getLeftModifiedDisplay(), pe.getRightModifiedDisplay());
+        assertEquals("", pe.getLeftSizeDisplay());
+        assertEquals("", new PairedEntry(null, null).getRightName());
+    }
+}
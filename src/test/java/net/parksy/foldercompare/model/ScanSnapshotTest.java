@@ -0,0 +1,48 @@
+package net.parksy.foldercompare.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanSnapshotTest {
+
+    @Test
+    void builder_roundTripsColumnsAndUtf8Names() {
+        ScanSnapshot.Builder b = new ScanSnapshot.Builder(1);
+        for (int i = 0; i < 100; i++) {
+            b.add("dir/ä-" + i, i % 10 == 0, i, 1_000L * i);
+        }
+        ScanSnapshot s = b.build();
+        assertEquals(100, s.count());
+        assertEquals("dir/ä-42", s.name(42));
+        assertTrue(s.isDirectory(40));
+        assertFalse(s.isDirectory(41));
+        assertEquals(42L, s.fileSize(42));
+        assertEquals(42_000L, s.modifiedNanos(42));
+        assertEquals(Instant.ofEpochSecond(0, 42_000L), s.fileInfo(42).getModified());
+    }
+
+    @Test
+    void addAll_concatenatesAndKeepsNameOffsets() {
+        ScanSnapshot first = new ScanSnapshot.Builder().add("a", false, 1, 0).add("bb", true, -1, 0).build();
+        ScanSnapshot second = new ScanSnapshot.Builder().add("ccc", false, 3, 0).build();
+        ScanSnapshot all = new ScanSnapshot.Builder().addAll(first).addAll(ScanSnapshot.EMPTY).addAll(second).build();
+        assertEquals(3, all.count());
+        assertEquals("bb", all.name(1));
+        assertEquals("ccc", all.name(2));
+        assertTrue(all.nameEquals(2, second, 0));
+        assertFalse(all.nameEquals(0, second, 0));
+    }
+
+    @Test
+    void snapshotView_materializesOnlyPresentSides() {
+        ScanSnapshot left = new ScanSnapshot.Builder().add("x.txt", false, 5, 7).build();
+        PairedEntry pe = PairedEntry.of(left, 0, ScanSnapshot.EMPTY, -1);
+        assertTrue(pe.isOrphanLeft());
+        assertNull(pe.getRight());
+        assertEquals("x.txt", pe.getLeftName());
+        assertEquals("5", pe.getLeftSizeDisplay());
+    }
+}
@@ -0,0 +1,110 @@
+package net.parksy.foldercompare.prefs;
+
+import net.parksy.foldercompare.fs.CompareUtil;
+import net.parksy.foldercompare.fs.FileOperations;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentHashCacheTest {
+
+    private static BasicFileAttributes attrs(Path p) throws Exception {
+        return Files.readAttributes(p, BasicFileAttributes.class);
+    }
+
+    @Test
+    void saveAndLoad_roundTripsDigests() throws Exception {
+        Path dir = Files.createTempDirectory("cache-");
+        try {
+            Path f = dir.resolve("a.txt");
+            Files.writeString(f, "hello");
+            ContentHashCache cache = new ContentHashCache(10);
+            byte[] digest = cache.digest(f, attrs(f));
+
+            Path file = dir.resolve("cache.bin");
+            cache.save(file);
+            ContentHashCache loaded = ContentHashCache.load(file, 10);
+            assertEquals(1, loaded.size());
+            assertArrayEquals(digest, loaded.digest(f, attrs(f)));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void digest_changedFile_isRehashed() throws Exception {
+        Path dir = Files.createTempDirectory("cache-");
+        try {
+            Path f = dir.resolve("a.txt");
+            Files.writeString(f, "one");
+            ContentHashCache cache = new ContentHashCache(10);
+            byte[] before = cache.digest(f, attrs(f));
+
+            Files.writeString(f, "two");
+            Files.setLastModifiedTime(f, FileTime.fromMillis(Files.getLastModifiedTime(f).toMillis() + 5000));
+            byte[] after = cache.digest(f, attrs(f));
+            assertFalse(java.util.Arrays.equals(before, after));
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void digest_overCapacity_evictsLeastRecentlyUsed() throws Exception {
+        Path dir = Files.createTempDirectory("cache-");
+        try {
+            ContentHashCache cache = new ContentHashCache(2);
+            for (int i = 0; i < 5; i++) {
+                Path f = dir.resolve("f" + i);
+                Files.writeString(f, "x" + i);
+                cache.digest(f, attrs(f));
+            }
+            assertEquals(2, cache.size());
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void load_corruptFile_yieldsEmptyCache() throws Exception {
+        Path dir = Files.createTempDirectory("cache-");
+        try {
+            Path file = dir.resolve("cache.bin");
+            Files.writeString(file, "not a cache");
+            assertEquals(0, ContentHashCache.load(file, 10).size());
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+
+    @Test
+    void filesEqual_withCache_matchesUncachedResult() throws Exception {
+        Path dir = Files.createTempDirectory("cache-");
+        try {
+            Path a = dir.resolve("a.txt");
+            Path b = dir.resolve("b.txt");
+            Path c = dir.resolve("c.txt");
+            Files.writeString(a, "same");
+            Files.writeString(b, "same");
+            Files.writeString(c, "diff");
+            ContentHashCache cache = new ContentHashCache(10);
+            assertTrue(CompareUtil.filesEqual(a, b, cache));
+            assertFalse(CompareUtil.filesEqual(a, c, cache));
+            assertEquals(3, cache.size());
+
+            // Unchanged attributes: the cached digests decide, the rewritten content is not read
+            FileTime mtime = Files.getLastModifiedTime(b);
+            Files.writeString(b, "diff");
+            Files.setLastModifiedTime(b, mtime);
+            assertTrue(CompareUtil.filesEqual(a, b, cache));
+            assertEquals(3, cache.size());
+        } finally {
+            FileOperations.deleteRecursive(dir);
+        }
+    }
+}